@@ -0,0 +1,71 @@
+/*
+ * Copyright: Carlos F. Heuberger. All rights reserved.
+ *
+ */
+package cfh.turtle.bench;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cfh.turtle.calc.EvalStack;
+import cfh.turtle.calc.Expression;
+import cfh.turtle.calc.Value;
+
+/**
+ * Heap allocated per expression evaluation, primitive against boxed result.
+ * Run with the GC profiler and read {@code gc.alloc.rate.norm}:
+ *     java -jar target/benchmarks.jar AllocationBenchmark -prof gc
+ * Add {@code -jvmArgs -XX:-DoEscapeAnalysis} to see allocations the JIT would otherwise remove.
+ *
+ * @author Carlos F. Heuberger, 2026-10-18
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AllocationBenchmark {
+
+    @Param({
+        "side * 2", "20 + 3 * 10", "100 - 30 - 20", "( 2 + 3 ) * 10",
+        "-200 >> 2", "2 ^ 2 ^ 3 / 4 - 14", "side / 3 << 1"
+    })
+    public String expression;
+
+    private Map<String, Value> variables;
+    private EvalStack stack;
+    private Expression compiled;
+
+    @Setup
+    public void setup() {
+        variables = new HashMap<>();
+        variables.put("side", Value.of(50));
+        stack = new EvalStack();
+        compiled = Expression.compile(expression);
+    }
+
+    @Benchmark
+    public double primitive() {
+        return compiled.evalDouble(variables, stack);
+    }
+
+    @Benchmark
+    public double boxed() {
+        return compiled.eval(variables, stack).asDouble();
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright: Carlos F. Heuberger. All rights reserved.
+ *
+ */
+package cfh.turtle.bench;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cfh.turtle.calc.Calculator;
+import cfh.turtle.calc.Expression;
+import cfh.turtle.calc.Frame;
+import cfh.turtle.calc.Value;
+
+/**
+ * {@code Calculator.evalDouble} for the expressions of {@code script/formula}, with variables
+ * looked up by name in a map or resolved to slots of a frame, as scripts do. The frame backed
+ * expressions are evaluated {@link Expression#COMPILE_THRESHOLD} times in the setup, so the
+ * generated bytecode is measured.
+ *
+ * @author Carlos F. Heuberger, 2026-10-18
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class EvalBenchmark {
+
+    @Param({
+        "5 * 10", "side", "20 + 3 * 10", "3 * 10 + 20", "100 - 30 - 20", "( 2 + 3 ) * 10",
+        "25 << 1", "-200 >> 2", "1 + 7 ^ 2", "-4 ^ 3 + 14", "2 ^ 2 ^ 3 / 4 - 14"
+    })
+    public String expression;
+
+    @Param({ "map", "frame" })
+    public String backend;
+
+    private Calculator calculator;
+    private Expression compiled;
+
+    @Setup
+    public void setup() {
+        switch (backend) {
+            case "map" -> {
+                var variables = new HashMap<String, Value>();
+                variables.put("side", Value.of(50));
+                calculator = new Calculator(variables);
+            }
+            case "frame" -> {
+                var frame = new Frame();
+                frame.setInt(frame.slot("side"), 50);
+                calculator = new Calculator(frame);
+            }
+            default -> throw new IllegalArgumentException("unknown backend \"" + backend + "\"");
+        }
+        compiled = calculator.compile(expression);
+        if (calculator.frame() != null) {
+            for (var i = 0; i < Expression.COMPILE_THRESHOLD; i++) {
+                calculator.evalDouble(compiled);
+            }
+        }
+    }
+
+    @Benchmark
+    public double eval() {
+        return calculator.evalDouble(compiled);
+    }
+}
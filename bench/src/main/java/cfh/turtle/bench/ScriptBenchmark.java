@@ -0,0 +1,74 @@
+/*
+ * Copyright: Carlos F. Heuberger. All rights reserved.
+ *
+ */
+package cfh.turtle.bench;
+
+import java.text.ParseException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cfh.turtle.batch.Recorder;
+import cfh.turtle.script.Control;
+import cfh.turtle.script.Program;
+
+/**
+ * Compiling and running a generated script, headless as in batch mode.
+ *
+ * @author Carlos F. Heuberger, 2026-10-18
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class ScriptBenchmark {
+
+    @Param({ "10000", "100000" })
+    public int lines;
+
+    private String text;
+    private Recorder recorder;
+
+    @Setup
+    public void setup() {
+        text = generate(lines);
+        recorder = new Recorder();
+    }
+
+    @Benchmark
+    public long script() throws ParseException {
+        Program.compile(text).run(recorder, new Control());
+        return recorder.segments();
+    }
+
+    /* script with the given number of lines, mostly moves and turns with expressions */
+    private static String generate(int lines) {
+        var random = new Random(42);
+        var text = new StringBuilder("reset\nside = 10\n");
+        for (var i = 2; i < lines; i++) {
+            switch (random.nextInt(10)) {
+                case 0 -> text.append("side = side % 40 + 3\n");
+                case 1 -> text.append(i % 2 == 0 ? "up\n" : "down\n");
+                case 2, 3, 4 -> text.append("left ").append(random.nextInt(180)).append('\n');
+                case 5 -> text.append("right side * 2\n");
+                default -> text.append("move side + ").append(random.nextInt(20)).append('\n');
+            }
+        }
+        return text.toString();
+    }
+}
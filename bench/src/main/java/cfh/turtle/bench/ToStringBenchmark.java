@@ -0,0 +1,56 @@
+/*
+ * Copyright: Carlos F. Heuberger. All rights reserved.
+ *
+ */
+package cfh.turtle.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cfh.turtle.Turtle;
+
+/**
+ * {@code Turtle.toString()} of a headless turtle.
+ *
+ * @author Carlos F. Heuberger, 2026-10-18
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class ToStringBenchmark {
+
+    @Param({ "10000", "1000000" })
+    public int segments;
+
+    private Turtle turtle;
+
+    @Setup
+    public void setup() {
+        turtle = Turtle.headless();
+        var random = new Random(42);
+        for (var i = 0; i < segments; i++) {
+            turtle.left(random.nextInt(120) - 60).forward(1 + random.nextInt(20));
+        }
+    }
+
+    @Benchmark
+    public String string() {
+        return turtle.toString();
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright: Carlos F. Heuberger. All rights reserved.
+ *
+ */
+package cfh.turtle.gui;
+
+import static java.lang.Math.*;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a full paint of the {@link TurtlePanel} into an offscreen image: the backing image
+ * is invalidated before each paint by changing the color, so all visible segments are painted
+ * again. The drawing is a random walk kept inside the panel.
+ * In this package, since painting is not public; runs headless.
+ * Ten million segments need about 4 GB of heap.
+ *
+ * @author Carlos F. Heuberger, 2026-10-18
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g", "-Djava.awt.headless=true" })
+public class PaintBenchmark {
+
+    private static final int WIDTH = 1000;
+    private static final int HEIGHT = 800;
+
+    private static final Color[] COLORS = { Color.BLACK, new Color(0, 0, 1) };
+
+    @Param({ "10000", "1000000", "10000000" })
+    public int segments;
+
+    private TurtlePanel panel;
+    private BufferedImage image;
+    private int count = 0;
+
+    @Setup
+    public void setup() {
+        panel = new TurtlePanel();
+        panel.setSize(WIDTH, HEIGHT);
+        panel.delay(0);
+        var random = new Random(42);
+        for (var i = 0; i < segments; i++) {
+            if (abs(panel.x()) > WIDTH / 2 - 20 || abs(panel.y()) > HEIGHT / 2 - 20) {
+                // back to the origin
+                panel.left(toDegrees(atan2(panel.y(), -panel.x())) - panel.dir());
+            } else {
+                panel.left(random.nextInt(120) - 60);
+            }
+            panel.forward(2 + random.nextInt(20));
+        }
+        panel.skip();
+        image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+    }
+
+    @TearDown
+    public void tearDown() {
+        panel = null;
+        image = null;
+    }
+
+    @Benchmark
+    public int paint() {
+        panel.setForeground(COLORS[count++ & 1]);
+        var gg = image.createGraphics();
+        try {
+            gg.setClip(0, 0, WIDTH, HEIGHT);
+            panel.paintComponent(gg);
+        } finally {
+            gg.dispose();
+        }
+        return image.getRGB(WIDTH / 2, HEIGHT / 2);
+    }
+}
@@ -0,0 +1,66 @@
+#!/bin/sh
+#
+# Copyright: Carlos F. Heuberger. All rights reserved.
+#
+# Builds a trimmed runtime image of the Turtle module with a class data sharing (AppCDS)
+# archive for fast startup, and reports the time to the first painted frame.
+#
+#   ./package.sh          image in build/image, start with build/image/bin/turtle
+#
+# Needs Maven, a JDK 17 or later (JAVA_HOME or java in PATH) with its jmods, and a display for
+# the training run: the GUI is opened, script/house is run and the GUI closed again.
+#
+set -e
+
+cd "$(dirname "$0")"
+
+if [ -n "$JAVA_HOME" ]; then
+    JDK="$JAVA_HOME"
+else
+    JDK="$(dirname "$(dirname "$(readlink -f "$(command -v java)")")")"
+fi
+BUILD=build
+IMAGE=$BUILD/image
+JAR=target/turtle-1.0-SNAPSHOT.jar
+MAIN=Turtle/cfh.turtle.gui.Main
+TRAINING=script/house
+RUNS=3
+
+echo "building $JAR"
+rm -rf "$IMAGE"
+JAVA_HOME="$JDK" mvn -B -q package
+
+echo "linking $IMAGE"
+"$JDK/bin/jlink" --module-path "$JDK/jmods:$JAR" --add-modules Turtle \
+    --strip-debug --no-man-pages --no-header-files --compress=2 \
+    --output "$IMAGE"
+
+echo "archiving classes"
+# default archive of the JDK classes in the image, then the dynamic archive of the training run
+"$IMAGE/bin/java" -Xshare:dump > /dev/null
+"$IMAGE/bin/java" -XX:ArchiveClassesAtExit="$IMAGE/lib/turtle.jsa" -m $MAIN -train $TRAINING
+
+cat > "$IMAGE/bin/turtle" <<'EOF'
+#!/bin/sh
+DIR="$(dirname "$0")"
+exec "$DIR/java" -XX:SharedArchiveFile="$DIR/../lib/turtle.jsa" -Xshare:auto -m Turtle/cfh.turtle.gui.Main "$@"
+EOF
+chmod +x "$IMAGE/bin/turtle"
+
+# startup: milliseconds from JVM start to the first painted frame, best of some runs
+startup() {
+    best=
+    for i in $(seq $RUNS); do
+        time=$("$@" -startup -train $TRAINING | sed -n 's/^startup: first frame after \([0-9]*\) ms$/\1/p')
+        if [ -z "$best" ] || [ "$time" -lt "$best" ]; then
+            best=$time
+        fi
+    done
+    echo "$best"
+}
+
+echo "measuring startup, best of $RUNS"
+jar=$(startup "$JDK/bin/java" -p "$JAR" -m $MAIN)
+image=$(startup "$IMAGE/bin/turtle")
+echo "first frame: $jar ms from the JDK with the module jar, $image ms from the image with AppCDS"
+echo "image size: $(du -sh "$IMAGE" | cut -f1)"
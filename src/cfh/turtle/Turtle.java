@@ -10,39 +10,94 @@ import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
-import java.awt.geom.Path2D;
-import java.awt.geom.PathIterator;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.ArrayList;
-import java.util.Formatter;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import javax.swing.JFrame;
 import javax.swing.JPanel;
 
+import cfh.turtle.engine.Engine;
+import cfh.turtle.engine.Export;
+import cfh.turtle.geom.SegmentLevels;
+import cfh.turtle.geom.SegmentStore;
+
 /**
+ * A turtle drawing into its own window.
+ * <p>
+ * The state and path are kept by an {@link Engine}; the window is only attached as listener,
+ * a {@link #headless()} turtle just records its path.
+ * <p>
+ * Further turtles drawing into the same window are created by {@link #spawn()}; each one
+ * has its own path and may be driven by its own thread.
+ * 
  * @author Carlos F. Heuberger, 2022-09-13
  *
  */
 public class Turtle {
 
-    private final Path2D path = new Path2D.Double();
-    
-    private boolean pen = true;
-    private double dir = 0;
-    private double x = 0;
-    private double y = 0;
+    private final Engine engine;
+    /** windows attached to the engine, also attached to turtles spawned afterwards. */
+    private final List<TurtlePanel> windows;
+    /** shared with spawned turtles. */
+    private final List<Listener> listeners;
     
-    private boolean move = true;
     private int delay = 0;
 
+    /** A turtle drawing into a new black window. */
     public Turtle() {
         this(Color.BLACK);
     }
     
+    /** A turtle drawing with the given color into a new window. */
     public Turtle(Color color) {
+        this((Void) null);
+        show(color);
+    }
+    
+    /* headless turtle */
+    private Turtle(Void headless) {
+        engine = new Engine();
+        windows = new ArrayList<>();
+        listeners = new CopyOnWriteArrayList<>();
+    }
+    
+    /* spawned turtle, drawing into the windows and sharing the listeners of the parent */
+    private Turtle(Turtle parent) {
+        engine = parent.engine.spawn();
+        windows = new ArrayList<>(parent.windows);
+        listeners = parent.listeners;
+        delay = parent.delay;
+        for (var window : windows) {
+            window.attach(engine);
+        }
+    }
+    
+    /** 
+     * Creates a turtle without window, just recording its path. 
+     * A window can be attached later by {@link #show(Color)}.
+     */
+    public static Turtle headless() {
+        return new Turtle((Void) null);
+    }
+    
+    /** 
+     * Opens a window showing this turtle, and the turtles spawned by it afterwards,
+     * drawing with the given color. The window is attached as listener of the engine.
+     */
+    public Turtle show(Color color) {
         var panel = new TurtlePanel();
         panel.setForeground(color);
-        addListener(panel::repaint);
+        windows.add(panel);
+        panel.attach(engine);
         
         var frame = new JFrame("Turtle");
         frame.setDefaultCloseOperation(frame.DISPOSE_ON_CLOSE);
@@ -51,6 +106,15 @@ public class Turtle {
         frame.validate();
         frame.setLocationRelativeTo(null);
         frame.setVisible(true);
+        return this;
+    }
+    
+    /** 
+     * Creates a new turtle at the actual position and direction of this one, drawing into
+     * the same window but with its own path. Each turtle must only be used by one thread.
+     */
+    public Turtle spawn() {
+        return new Turtle(this);
     }
 
     public Turtle delay(int milliseconds) {
@@ -62,51 +126,36 @@ public class Turtle {
     public Turtle up() { return penup(); }
     
     public Turtle penup() {
-        pen = false;
+        engine.pen(false);
         return this;
     }
     
     public Turtle down() { return pendown(); }
     
     public Turtle pendown() {
-        if (!pen) {
-            move = true;
-        }
-        pen = true;
+        engine.pen(true);
         return this;
     }
     
     public Turtle left() { return left(90); }
     
     public Turtle left(int degrees) {
-        dir += toRadians(degrees);
-        while (dir > 2 * PI) {
-            dir -= 2*PI;
-        }
+        engine.left(degrees);
         return this;
     }
     
     public Turtle right() { return right(90); }
     
     public Turtle right(int degrees) {
-        dir -= toRadians(degrees);
-        while (dir < 0) {
-            dir += 2*PI;
-        }
+        engine.right(degrees);
         return this;
     }
     
     public Turtle move(double amount) { return forward(amount); }
     
     public Turtle forward(double amount) {
-        if (pen && move) {
-            path.moveTo(x,  y);
-            move = false;
-        }
-        x +=  amount * cos(dir);
-        y += -amount * sin(dir);
-        if (pen) {
-            path.lineTo(x, y);
+        engine.forward(amount);
+        if (engine.pen()) {
             repaint();
         }
         return this;
@@ -117,35 +166,33 @@ public class Turtle {
     }
     
     public int dir() {
-        return (int) round(toDegrees(dir)) % 360;
+        return (int) round(engine.dir()) % 360;
     }
     
-    public Path2D path() {
-        return path;
+    public Shape path() {
+        return engine.path();
     }
     
+    /** Writes the path of this turtle in the given format, streaming. */
+    public Turtle export(Export format, Writer writer) throws IOException {
+        format.write(engine.path(), writer);
+        return this;
+    }
+    
+    /** @return the path of this turtle as {@link Export#TEXT}. */
     @Override
     public String toString() {
-        try ( var formatter = new Formatter() ) {
-            for (var iter = path.getPathIterator(null); !iter.isDone(); iter.next()) {
-                var coords = new double[6];
-                var type = iter.currentSegment(coords);
-                formatter.format(
-                    switch (type) {
-                        case PathIterator.SEG_MOVETO -> "move %4.0f %4.0f%n";
-                        case PathIterator.SEG_LINETO -> "line %4.0f %4.0f%n";
-                        default -> "unhandled type: " + type;
-                    },
-                    coords[0], coords[1]);
-            }
-            return formatter.toString();
+        var writer = new StringWriter();
+        try {
+            export(Export.TEXT, writer);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
         }
+        return writer.toString();
     }
     
     //----------------------------------------------------------------------------------------------
     
-    private final List<Listener> listeners = new ArrayList<>();
-    
     public boolean addListener(Listener l) {
         return listeners.add(l);
     }
@@ -156,55 +203,75 @@ public class Turtle {
     
     private void repaint() {
         for (var l : listeners) {
-            l.repaint(delay, path);
+            l.repaint(delay, engine.path());
         }
     }
     
     ////////////////////////////////////////////////////////////////////////////////////////////////
     
     public static interface Listener {
-        public void repaint(int delay, Path2D path);
+        public void repaint(int delay, Shape path);
     }
 }
 
 @SuppressWarnings("serial")
-class TurtlePanel extends JPanel implements Turtle.Listener {
+class TurtlePanel extends JPanel implements Engine.Listener {
 
-    private Path2D path = null;
+    private static final int LEVELS = 10;
+    
+    /** paths of all turtles drawing into this panel. */
+    private final CopyOnWriteArrayList<Shape> paths = new CopyOnWriteArrayList<>();
+    /** simplified paths for scaled down drawing, only used by the EDT. */
+    private final Map<SegmentStore, SegmentLevels> levels = new HashMap<>();
     
     TurtlePanel() { 
         //
     }
     
-    @Override
-    public void repaint(int delay, Path2D path) {
-        this.path = path;
+    /* shows the path of the engine, repainted on every line drawn */
+    void attach(Engine engine) {
+        paths.addIfAbsent(engine.path());
+        engine.addListener(this);
         repaint();
     }
     
+    @Override
+    public void moved(Engine engine, int index, double distance) {
+        if (engine.pen()) {
+            repaint();
+        }
+    }
+    
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
         
 
-        if (path != null) {
+        if (!paths.isEmpty()) {
             var gg = (Graphics2D) g.create();
             try {
                 var panel = getBounds();
                 panel.x = -panel.width/2;
                 panel.y = -panel.height/2;
-                var bounds = path.getBounds();
+                Rectangle bounds = null;
+                for (var path : paths) {
+                    bounds = bounds == null ? path.getBounds() : bounds.union(path.getBounds());
+                }
+                double scale = 1;
                 if (!panel.contains(bounds)) {
                     bounds.add(0, 0);
                     bounds.grow(10, 10);
-                    double scale = Math.min(panel.getWidth()/bounds.getWidth(), panel.getHeight()/bounds.getHeight());
+                    scale = Math.min(panel.getWidth()/bounds.getWidth(), panel.getHeight()/bounds.getHeight());
                     gg.scale(scale, scale);
                     gg.translate(-bounds.x, -bounds.y);
                 } else {
                     gg.translate(-panel.x, -panel.y);
                 }
                 paintAxes(gg);
-                paintPath(gg);
+                gg.setColor(getForeground());
+                for (var path : paths) {
+                    paintPath(gg, path, scale);
+                }
             } finally {
                 gg.dispose();
             }
@@ -226,9 +293,14 @@ class TurtlePanel extends JPanel implements Turtle.Listener {
         }
     }
     
-    private void paintPath(Graphics2D gg) {
-        gg.setColor(getForeground());
-        gg.draw(path);
+    private void paintPath(Graphics2D gg, Shape path, double scale) {
+        if (path instanceof SegmentStore store) {
+            var simplified = levels.computeIfAbsent(store, s -> new SegmentLevels(s, LEVELS));
+            simplified.update();
+            gg.draw(scale > 0 ? simplified.forScale(scale) : store);
+        } else {
+            gg.draw(path);
+        }
     }
 }
 
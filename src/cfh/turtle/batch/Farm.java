@@ -0,0 +1,143 @@
+/*
+ * Copyright: Carlos F. Heuberger. All rights reserved.
+ *
+ */
+package cfh.turtle.batch;
+
+import static java.util.Objects.*;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Collectors;
+
+import cfh.turtle.batch.Render.Result;
+
+/**
+ * Renders many scripts in parallel on a work-stealing {@link ForkJoinPool}.
+ * Every script is rendered in isolation, with its own program, variables and turtle.
+ * 
+ * @author Carlos F. Heuberger, 2026-10-18
+ *
+ */
+public final class Farm {
+
+    /**
+     * Expands the argument into script files: a directory gives all its regular files,
+     * a glob pattern in the last name ({@code script/*}) the matching files, 
+     * otherwise the file itself. Listed files with the extension of an output {@link Format},
+     * rendered beside the scripts by a previous run, are skipped.
+     */
+    public static List<Path> expand(String argument) throws IOException {
+        var path = Path.of(argument);
+        if (Files.isDirectory(path))
+            return list(path, "*");
+        var name = path.getFileName() == null ? "" : path.getFileName().toString();
+        if (name.chars().anyMatch(ch -> "*?[{".indexOf(ch) != -1)) {
+            var parent = path.getParent() == null ? Path.of("") : path.getParent();
+            return list(parent, name);
+        }
+        return List.of(path);
+    }
+    
+    private static List<Path> list(Path directory, String glob) throws IOException {
+        var matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+        var dir = directory.toString().isEmpty() ? Path.of(".") : directory;
+        try (var files = Files.list(dir)) {
+            return files
+                .filter(Files::isRegularFile)
+                .filter(file -> matcher.matches(file.getFileName()))
+                .filter(file -> !file.getFileName().toString().startsWith("."))
+                .filter(file -> !Format.isOutput(file))
+                .map(file -> directory.toString().isEmpty() ? file.getFileName() : file)
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+    
+    //----------------------------------------------------------------------------------------------
+    
+    private final Render render;
+    private final Path directory;
+    private final ForkJoinPool pool;
+    
+    /**
+     * @param directory  output directory, {@code null} to write beside the scripts
+     * @param parallelism  number of worker threads
+     */
+    public Farm(Render render, Path directory, int parallelism) {
+        this.render = requireNonNull(render);
+        this.directory = directory;
+        this.pool = new ForkJoinPool(parallelism);
+    }
+    
+    /** @return the results in the same order as the scripts. */
+    public List<Result> render(List<Path> scripts) {
+        var results = new Result[scripts.size()];
+        pool.invoke(new Task(scripts, results, 0, scripts.size()));
+        return Arrays.asList(results);
+    }
+    
+    public void shutdown() {
+        pool.shutdown();
+    }
+    
+    /** @return a summary with failures and the slowest scripts. */
+    public static String summary(List<Result> results, long wallNanos) {
+        var builder = new StringBuilder();
+        var failed = results.stream().filter(result -> !result.ok()).collect(Collectors.toList());
+        if (!failed.isEmpty()) {
+            builder.append("failures:\n");
+            for (var result : failed) {
+                builder.append("  ").append(result.script()).append(": ").append(result.error()).append('\n');
+            }
+        }
+        var slowest = new ArrayList<>(results);
+        slowest.sort((a, b) -> Long.compare(b.totalNanos(), a.totalNanos()));
+        builder.append("slowest:\n");
+        for (var result : slowest.subList(0, Math.min(5, slowest.size()))) {
+            builder.append("  %8.1f ms  %s%n".formatted(result.totalNanos() / 1e6, result.script()));
+        }
+        var busy = results.stream().mapToLong(Result::totalNanos).sum();
+        var segments = results.stream().mapToLong(Result::segments).sum();
+        builder.append("%d scripts, %d failed, %d segments, %.1f ms wall, %.1f ms total, speedup %.1f%n".formatted(
+            results.size(), failed.size(), segments, wallNanos / 1e6, busy / 1e6, 
+            wallNanos == 0 ? 0.0 : (double) busy / wallNanos));
+        return builder.toString();
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+    
+    @SuppressWarnings("serial")
+    private class Task extends RecursiveAction {
+        
+        private final List<Path> scripts;
+        private final Result[] results;
+        private final int from;
+        private final int to;
+        
+        Task(List<Path> scripts, Result[] results, int from, int to) {
+            this.scripts = scripts;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                var script = scripts.get(from);
+                results[from] = render.render(script, render.output(script, directory));
+            } else if (to > from) {
+                var middle = (from + to) >>> 1;
+                invokeAll(new Task(scripts, results, from, middle), new Task(scripts, results, middle, to));
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright: Carlos F. Heuberger. All rights reserved.
+ *
+ */
+package cfh.turtle.batch;
+
+import static java.util.Objects.*;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+import javax.imageio.ImageIO;
+
+import cfh.turtle.engine.Export;
+
+/**
+ * Output formats of the batch renderer. 
+ * The drawing is scaled to fit the given size, keeping its aspect ratio.
+ * 
+ * @author Carlos F. Heuberger, 2026-10-18
+ *
+ */
+public enum Format {
+
+    PNG("png") {
+        @Override
+        public void write(Shape path, Color color, int width, int height, Path file) throws IOException {
+            var image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            var gg = image.createGraphics();
+            try {
+                gg.setColor(Color.WHITE);
+                gg.fillRect(0, 0, width, height);
+                gg.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                var bounds = bounds(path);
+                var scale = scale(bounds, width, height);
+                gg.translate(width / 2.0, height / 2.0);
+                gg.scale(scale, scale);
+                gg.translate(-bounds.getCenterX(), -bounds.getCenterY());
+                gg.setStroke(new BasicStroke((float) (1 / scale)));
+                gg.setColor(color);
+                gg.draw(path);
+            } finally {
+                gg.dispose();
+            }
+            if (!ImageIO.write(image, "png", file.toFile()))
+                throw new IOException("no PNG writer");
+        }
+    },
+    
+    SVG("svg") {
+        @Override
+        public void write(Shape path, Color color, int width, int height, Path file) throws IOException {
+            var bounds = bounds(path);
+            try (var writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                writer.write(String.format(Locale.ROOT, 
+                    "<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"%d\" height=\"%d\" viewBox=\"%.3f %.3f %.3f %.3f\">%n",
+                    width, height, bounds.getX(), bounds.getY(), bounds.getWidth(), bounds.getHeight()));
+                writer.write(String.format(Locale.ROOT,
+                    "<path fill=\"none\" stroke=\"#%06x\" stroke-width=\"%.3f\" d=\"",
+                    color.getRGB() & 0xFFFFFF, 1 / scale(bounds, width, height)));
+                Export.SVG_DATA.write(path, writer);
+                writer.write("\"/>\n</svg>\n");
+            }
+        }
+    },
+    ;
+    
+    //==============================================================================================
+    
+    /** @return the format for the given extension, ignoring case. */
+    public static Format of(String extension) {
+        for (var format : values()) {
+            if (format.extension.equalsIgnoreCase(extension))
+                return format;
+        }
+        throw new IllegalArgumentException("unknown format: " + extension);
+    }
+    
+    /** @return if the file name has the extension of a format, ignoring case. */
+    public static boolean isOutput(Path file) {
+        var name = file.getFileName().toString();
+        var dot = name.lastIndexOf('.');
+        if (dot == -1)
+            return false;
+        var extension = name.substring(dot + 1);
+        for (var format : values()) {
+            if (format.extension.equalsIgnoreCase(extension))
+                return true;
+        }
+        return false;
+    }
+    
+    private static Rectangle2D bounds(Shape path) {
+        var bounds = path.getBounds2D();
+        bounds.add(0, 0);
+        var margin = Math.max(10, 0.02 * Math.max(bounds.getWidth(), bounds.getHeight()));
+        bounds.setRect(bounds.getX() - margin, bounds.getY() - margin, 
+            bounds.getWidth() + 2 * margin, bounds.getHeight() + 2 * margin);
+        return bounds;
+    }
+    
+    private static double scale(Rectangle2D bounds, int width, int height) {
+        return Math.min(width / bounds.getWidth(), height / bounds.getHeight());
+    }
+    
+    //----------------------------------------------------------------------------------------------
+    
+    private final String extension;
+    
+    private Format(String extension) {
+        this.extension = requireNonNull(extension);
+    }
+    
+    public String extension() { return extension; }
+    
+    /** Writes the path into the file. */
+    public abstract void write(Shape path, Color color, int width, int height, Path file) throws IOException;
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright: Carlos F. Heuberger. All rights reserved.
+ *
+ */
+package cfh.turtle.batch;
+
+import java.awt.Color;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+/**
+ * Headless batch renderer, runs script files and writes the drawings as PNG or SVG.
+ * No window is opened, {@code delay} is ignored. Scripts can be given as files, directories or
+ * glob patterns ({@code script/*}); with {@code -parallel} they are rendered on all cores.
+ * <pre>
+ * usage: Main [-format png|svg] [-size WIDTHxHEIGHT] [-out DIRECTORY] [-parallel [THREADS]] SCRIPT...
+ * </pre>
+ * 
+ * @author Carlos F. Heuberger, 2026-10-18
+ *
+ */
+public class Main {
+
+    public static void main(String... args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+        
+        var format = Format.PNG;
+        var width = 800;
+        var height = 600;
+        Path directory = null;
+        var parallelism = 0;
+        var scripts = new ArrayList<Path>();
+        for (var i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-format" -> format = Format.of(argument(args, ++i));
+                case "-size" -> {
+                    var size = argument(args, ++i).split("x", 2);
+                    if (size.length != 2) usage("invalid size: " + args[i]);
+                    width = Integer.parseInt(size[0]);
+                    height = Integer.parseInt(size[1]);
+                }
+                case "-out" -> directory = Path.of(argument(args, ++i));
+                case "-parallel" -> {
+                    parallelism = Runtime.getRuntime().availableProcessors();
+                    if (i+1 < args.length && args[i+1].matches("\\d+")) {
+                        parallelism = Integer.parseInt(args[++i]);
+                    }
+                }
+                default -> {
+                    if (args[i].startsWith("-")) usage("unknown option: " + args[i]);
+                    scripts.addAll(Farm.expand(args[i]));
+                }
+            }
+        }
+        if (scripts.isEmpty()) usage("no scripts");
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        
+        var render = new Render(format, width, height, Color.BLACK);
+        if (parallelism > 0) {
+            var farm = new Farm(render, directory, parallelism);
+            var start = System.nanoTime();
+            var results = farm.render(scripts);
+            var wall = System.nanoTime() - start;
+            farm.shutdown();
+            results.forEach(System.out::println);
+            System.out.print(Farm.summary(results, wall));
+            if (results.stream().anyMatch(result -> !result.ok())) {
+                System.exit(1);
+            }
+            return;
+        }
+        
+        var failed = 0;
+        var segments = 0L;
+        var start = System.nanoTime();
+        for (var script : scripts) {
+            var result = render.render(script, render.output(script, directory));
+            System.out.println(result);
+            segments += result.segments();
+            if (!result.ok()) {
+                failed += 1;
+            }
+        }
+        var millis = (System.nanoTime() - start) / 1e6;
+        System.out.printf("%d scripts, %d failed, %d segments, %.1f ms%n", scripts.size(), failed, segments, millis);
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+    
+    private static String argument(String[] args, int index) {
+        if (index >= args.length) usage("missing argument for " + args[index-1]);
+        return args[index];
+    }
+    
+    private static void usage(String message) {
+        System.err.println(message);
+        System.err.println("usage: Main [-format png|svg] [-size WIDTHxHEIGHT] [-out DIRECTORY] [-parallel [THREADS]] SCRIPT...");
+        System.exit(2);
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright: Carlos F. Heuberger. All rights reserved.
+ *
+ */
+package cfh.turtle.batch;
+
+import java.awt.Shape;
+import java.awt.geom.Path2D;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import cfh.turtle.engine.Engine;
+import cfh.turtle.geom.SegmentStore;
+import cfh.turtle.script.Target;
+
+/**
+ * Headless turtle recording the drawn path, delays are ignored.
+ * Uses the same {@link Engine} as the GUI turtle: direction in degrees, counterclockwise,
+ * {@code y} pointing down.
+ * <p>
+ * Spawned turtles record into their own path, merged by {@link #drawing()} after the run.
+ * 
+ * @author Carlos F. Heuberger, 2026-10-18
+ *
+ */
+public class Recorder implements Target {
+
+    private final Engine engine;
+    private final List<Recorder> spawned = new CopyOnWriteArrayList<>();
+    
+    public Recorder() {
+        engine = new Engine();
+    }
+    
+    private Recorder(Recorder parent) {
+        engine = parent.engine.spawn();
+    }
+    
+    /** @return the path of this turtle only. */
+    public SegmentStore path() { return engine.path(); }
+    
+    /** @return the paths of this and all spawned turtles, must not be called while running. */
+    public Shape drawing() {
+        if (spawned.isEmpty())
+            return engine.path();
+        var drawing = new Path2D.Double();
+        append(drawing);
+        return drawing;
+    }
+    
+    private void append(Path2D drawing) {
+        drawing.append(engine.path(), false);
+        for (var turtle : spawned) {
+            turtle.append(drawing);
+        }
+    }
+    
+    /** @return number of line segments drawn, including spawned turtles. */
+    public long segments() {
+        var segments = engine.path().segments();
+        for (var turtle : spawned) {
+            segments += turtle.segments();
+        }
+        return segments;
+    }
+    
+    public double dir() { return engine.dir(); }
+    public double x() { return engine.x(); }
+    public double y() { return engine.y(); }
+    public boolean pen() { return engine.pen(); }
+    
+    @Override
+    public void delay(int time) {
+        if (time < 0) {
+            throw new IllegalArgumentException("negative time: " + time);
+        }
+    }
+    
+    @Override
+    public void reset() {
+        engine.reset();
+        spawned.clear();
+    }
+    
+    @Override
+    public Target spawn(String name) {
+        var turtle = new Recorder(this);
+        spawned.add(turtle);
+        return turtle;
+    }
+    
+    @Override
+    public void forward(double amount) {
+        engine.forward(amount);
+    }
+    
+    @Override
+    public void backward(double amount) {
+        engine.backward(amount);
+    }
+    
+    @Override
+    public void left(double degrees) {
+        engine.left(degrees);
+    }
+    
+    @Override
+    public void right(double degrees) {
+        engine.right(degrees);
+    }
+    
+    @Override
+    public void pen(boolean down) {
+        engine.pen(down);
+    }
+}
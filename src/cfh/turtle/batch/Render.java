@@ -0,0 +1,106 @@
+/*
+ * Copyright: Carlos F. Heuberger. All rights reserved.
+ *
+ */
+package cfh.turtle.batch;
+
+import static java.util.Objects.*;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import cfh.turtle.script.Program;
+
+/**
+ * Runs a script file headless and writes the drawing to a file.
+ * Each render uses its own program, variables and turtle.
+ * 
+ * @author Carlos F. Heuberger, 2026-10-18
+ *
+ */
+public final class Render {
+
+    private final Format format;
+    private final int width;
+    private final int height;
+    private final Color color;
+    
+    public Render(Format format, int width, int height, Color color) {
+        if (width <= 0 || height <= 0) throw new IllegalArgumentException("invalid size: " + width + "x" + height);
+        this.format = requireNonNull(format);
+        this.width = width;
+        this.height = height;
+        this.color = requireNonNull(color);
+    }
+    
+    public Format format() { return format; }
+    
+    /** @return the output file for the script, in the given directory or beside the script if {@code null}. */
+    public Path output(Path script, Path directory) {
+        var name = script.getFileName().toString();
+        var dot = name.lastIndexOf('.');
+        if (dot > 0) {
+            name = name.substring(0, dot);
+        }
+        name += "." + format.extension();
+        return directory == null ? script.resolveSibling(name) : directory.resolve(name);
+    }
+    
+    /** Renders the script, never overwriting it; errors are returned in the result, not thrown. */
+    public Result render(Path script, Path output) {
+        var times = new long[3];
+        var recorder = new Recorder();
+        Exception error = null;
+        var start = System.nanoTime();
+        var phase = 0;
+        try {
+            if (Files.exists(output) && Files.isSameFile(script, output))
+                throw new IOException("output would overwrite the script: " + output);
+            var program = Program.compile(Files.readString(script));
+            start = lap(times, phase++, start);
+            program.run(recorder);
+            start = lap(times, phase++, start);
+            format.write(recorder.drawing(), color, width, height, output);
+        } catch (Exception ex) {
+            error = ex;
+        }
+        lap(times, phase, start);
+        return new Result(script, output, recorder.segments(), times[0], times[1], times[2], error);
+    }
+    
+    /** Adds the time since start to the phase, returns the actual time. */
+    private static long lap(long[] times, int phase, long start) {
+        var now = System.nanoTime();
+        times[phase] += now - start;
+        return now;
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * @param error  the exception if failed, {@code null} on success
+     */
+    public record Result(Path script, Path output, long segments, 
+        long compileNanos, long runNanos, long renderNanos, Exception error) {
+        
+        public boolean ok() { return error == null; }
+        
+        public long totalNanos() { return compileNanos + runNanos + renderNanos; }
+        
+        @Override
+        public String toString() {
+            var times = "%6d segments  %7.1f ms (compile %.1f, run %.1f, render %.1f)".formatted(
+                segments, millis(totalNanos()), millis(compileNanos), millis(runNanos), millis(renderNanos));
+            return ok() 
+                ? "%s -> %s  %s".formatted(script, output, times)
+                : "%s FAILED %s  %s".formatted(script, error, times);
+        }
+        
+        private static double millis(long nanos) {
+            return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+    }
+}
@@ -0,0 +1,408 @@
+/*
+ * Copyright: Carlos F. Heuberger. All rights reserved.
+ *
+ */
+package cfh.turtle.calc;
+
+import static java.lang.invoke.MethodType.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Generates a hidden class implementing {@link CompiledExpression} for a postfix program.
+ * <p>
+ * The generated code has no branches: operand types are known statically, so each value is 
+ * produced directly in the type its consumer needs. Conversions follow the {@link Operator}
+ * semantics: {@code double} operators use the value, {@code int} operators use 
+ * {@code (int) Math.round(value)}, which is exact for integer values.
+ * Comparisons call the static helpers of this class instead of branching.
+ * 
+ * @author Carlos F. Heuberger, 2026-10-18
+ *
+ */
+final class BytecodeCompiler {
+
+    /** maximal number of postfix instructions compiled, keeps code and constant pool small. */
+    static final int MAX_LENGTH = 2_000;
+    
+    private static final String NAME = BytecodeCompiler.class.getPackageName().replace('.', '/') + "/GeneratedExpression";
+    private static final String INTERFACE = CompiledExpression.class.getName().replace('.', '/');
+    private static final String HELPER = BytecodeCompiler.class.getName().replace('.', '/');
+    
+    /**
+     * Compiles the postfix program, all variables must be resolved to slots.
+     * 
+     * @throws ReflectiveOperationException if the class could not be defined or instantiated
+     */
+    static CompiledExpression compile(byte[] kinds, double[] literals, int[] slots, Operator[] operators) 
+    throws ReflectiveOperationException {
+        if (kinds.length > MAX_LENGTH)
+            throw new IllegalArgumentException("expression too long: " + kinds.length);
+        var bytes = new BytecodeCompiler(kinds, literals, slots, operators).generate();
+        var lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+        try {
+            var constructor = lookup.findConstructor(lookup.lookupClass(), methodType(void.class));
+            return (CompiledExpression) constructor.invoke();
+        } catch (ReflectiveOperationException | RuntimeException | Error ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            throw new ReflectiveOperationException(ex);
+        }
+    }
+    
+    // comparison helpers called by the generated code
+    static int less(double left, double right) { return left < right ? 1 : 0; }
+    static int greater(double left, double right) { return left > right ? 1 : 0; }
+    static int lessEqual(double left, double right) { return left <= right ? 1 : 0; }
+    static int greaterEqual(double left, double right) { return left >= right ? 1 : 0; }
+    static int equal(double left, double right) { return left == right ? 1 : 0; }
+    static int notEqual(double left, double right) { return left != right ? 1 : 0; }
+    
+    // opcodes
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ALOAD_1 = 0x2b;
+    private static final int ICONST_0 = 0x03;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC_W = 0x13;
+    private static final int LDC2_W = 0x14;
+    private static final int DALOAD = 0x31;
+    private static final int DADD = 0x63;
+    private static final int DSUB = 0x67;
+    private static final int DMUL = 0x6b;
+    private static final int DDIV = 0x6f;
+    private static final int DREM = 0x73;
+    private static final int ISHL = 0x78;
+    private static final int ISHR = 0x7a;
+    private static final int IUSHR = 0x7c;
+    private static final int I2D = 0x87;
+    private static final int L2I = 0x88;
+    private static final int DRETURN = 0xaf;
+    private static final int RETURN = 0xb1;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKESTATIC = 0xb8;
+    
+    // constant pool tags
+    private static final int UTF8 = 1;
+    private static final int INTEGER = 3;
+    private static final int DOUBLE = 6;
+    private static final int CLASS = 7;
+    private static final int METHODREF = 10;
+    private static final int NAME_AND_TYPE = 12;
+    
+    //----------------------------------------------------------------------------------------------
+    
+    private final byte[] kinds;
+    private final double[] literals;
+    private final int[] slots;
+    private final Operator[] operators;
+    
+    /** operand indices of each operator. */
+    private final int[] lefts;
+    private final int[] rights;
+    
+    private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+    private final DataOutputStream poolOut = new DataOutputStream(pool);
+    private final Map<String, Integer> constants = new HashMap<>();
+    private int poolCount = 1;
+    
+    private final ByteArrayOutputStream code = new ByteArrayOutputStream();
+    private int depth = 0;
+    private int maxDepth = 0;
+    
+    private BytecodeCompiler(byte[] kinds, double[] literals, int[] slots, Operator[] operators) {
+        this.kinds = kinds;
+        this.literals = literals;
+        this.slots = slots;
+        this.operators = operators;
+        lefts = new int[kinds.length];
+        rights = new int[kinds.length];
+        
+        var stack = new int[kinds.length];
+        var size = 0;
+        for (var i = 0; i < kinds.length; i++) {
+            if (kinds[i] == Expression.OP) {
+                rights[i] = stack[--size];
+                lefts[i] = stack[--size];
+            } else if (kinds[i] == Expression.VAR && slots[i] < 0) {
+                throw new IllegalArgumentException("unresolved variable");
+            }
+            stack[size++] = i;
+        }
+        if (size != 1)
+            throw new IllegalArgumentException("invalid expression");
+    }
+    
+    private byte[] generate() {
+        try {
+            var thisClass = classConstant(NAME);
+            var superClass = classConstant("java/lang/Object");
+            var interfaceClass = classConstant(INTERFACE);
+            
+            var methods = new ArrayList<byte[]>();
+            
+            code.write(ALOAD_0);
+            code.write(INVOKESPECIAL);
+            writeShort(code, methodConstant("java/lang/Object", "<init>", "()V"));
+            code.write(RETURN);
+            methods.add(method("<init>", "()V", 1, 1));
+            
+            code.reset();
+            depth = maxDepth = 0;
+            var root = kinds.length - 1;
+            var integer = operators[root] != null && operators[root].integer();
+            emit(root, integer);
+            if (integer) {
+                convert(I2D, 1);
+            }
+            code.write(DRETURN);
+            methods.add(method("eval", "([D)D", maxDepth, 2));
+            
+            var bytes = new ByteArrayOutputStream();
+            var out = new DataOutputStream(bytes);
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(52);
+            out.writeShort(poolCount);
+            pool.writeTo(out);
+            out.writeShort(0x1000 | 0x0020 | 0x0010);  // synthetic super final
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(1);
+            out.writeShort(interfaceClass);
+            out.writeShort(0);  // fields
+            out.writeShort(methods.size());
+            for (var method : methods) {
+                out.write(method);
+            }
+            out.writeShort(0);  // attributes
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+    
+    /** Emits code leaving the value of the instruction {@code index} on the stack as int or double. */
+    private void emit(int index, boolean asInt) throws IOException {
+        switch (kinds[index]) {
+            case Expression.INT -> {
+                if (asInt) {
+                    pushInt((int) literals[index]);
+                } else {
+                    pushDouble(literals[index]);
+                }
+            }
+            case Expression.NUM -> {
+                pushDouble(literals[index]);
+                if (asInt) {
+                    round();
+                }
+            }
+            case Expression.VAR -> {
+                code.write(ALOAD_1);
+                push(1);
+                pushInt(slots[index]);
+                code.write(DALOAD);
+                pop(2);
+                push(2);
+                if (asInt) {
+                    round();
+                }
+            }
+            default -> {
+                var op = operators[index];
+                var integer = op.integer();
+                var operands = op.integerOperands();
+                emit(lefts[index], operands);
+                emit(rights[index], operands);
+                switch (op) {
+                    case EXP -> {
+                        code.write(INVOKESTATIC);
+                        writeShort(code, methodConstant("java/lang/Math", "pow", "(DD)D"));
+                    }
+                    case MUL -> code.write(DMUL);
+                    case DIV -> code.write(DDIV);
+                    case MOD -> code.write(DREM);
+                    case ADD -> code.write(DADD);
+                    case SUB -> code.write(DSUB);
+                    case LEF_SHIFT -> code.write(ISHL);
+                    case RIGHT_SHIFT -> code.write(ISHR);
+                    case UNSIGNED_SHIFT -> code.write(IUSHR);
+                    case LESS -> compare("less");
+                    case GREATER -> compare("greater");
+                    case LESS_EQUAL -> compare("lessEqual");
+                    case GREATER_EQUAL -> compare("greaterEqual");
+                    case EQUAL -> compare("equal");
+                    case NOT_EQUAL -> compare("notEqual");
+                    default -> throw new IllegalArgumentException("unsupported operator " + op);
+                }
+                pop(operands ? 1 : 2);
+                if (integer && !operands) {
+                    // comparison: two doubles replaced by an int
+                    pop(2);
+                    push(1);
+                }
+                if (integer && !asInt) {
+                    convert(I2D, 1);
+                } else if (!integer && asInt) {
+                    round();
+                }
+            }
+        }
+    }
+    
+    private void compare(String helper) throws IOException {
+        code.write(INVOKESTATIC);
+        writeShort(code, methodConstant(HELPER, helper, "(DD)I"));
+    }
+    
+    /** {@code (int) Math.round(double)}. */
+    private void round() throws IOException {
+        code.write(INVOKESTATIC);
+        writeShort(code, methodConstant("java/lang/Math", "round", "(D)J"));
+        code.write(L2I);
+        pop(1);
+    }
+    
+    /** Conversion changing the top value size from {@code size} to 3 - {@code size}. */
+    private void convert(int opcode, int size) {
+        code.write(opcode);
+        pop(size);
+        push(3 - size);
+    }
+    
+    private void pushInt(int value) throws IOException {
+        if (-1 <= value && value <= 5) {
+            code.write(ICONST_0 + value);
+        } else if (Byte.MIN_VALUE <= value && value <= Byte.MAX_VALUE) {
+            code.write(BIPUSH);
+            code.write(value);
+        } else if (Short.MIN_VALUE <= value && value <= Short.MAX_VALUE) {
+            code.write(SIPUSH);
+            writeShort(code, value);
+        } else {
+            code.write(LDC_W);
+            writeShort(code, intConstant(value));
+        }
+        push(1);
+    }
+    
+    private void pushDouble(double value) throws IOException {
+        code.write(LDC2_W);
+        writeShort(code, doubleConstant(value));
+        push(2);
+    }
+    
+    private void push(int size) {
+        depth += size;
+        maxDepth = Math.max(maxDepth, depth);
+    }
+    
+    private void pop(int size) {
+        depth -= size;
+    }
+    
+    private byte[] method(String name, String descriptor, int maxStack, int maxLocals) throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        var out = new DataOutputStream(bytes);
+        out.writeShort(0x0001);  // public
+        out.writeShort(utf8Constant(name));
+        out.writeShort(utf8Constant(descriptor));
+        out.writeShort(1);
+        out.writeShort(utf8Constant("Code"));
+        out.writeInt(2 + 2 + 4 + code.size() + 2 + 2);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(code.size());
+        code.writeTo(out);
+        out.writeShort(0);  // exception table
+        out.writeShort(0);  // attributes
+        out.flush();
+        return bytes.toByteArray();
+    }
+    
+    //----------------------------------------------------------------------------------------------
+    
+    private int utf8Constant(String text) throws IOException {
+        var index = constants.get("U" + text);
+        if (index == null) {
+            poolOut.writeByte(UTF8);
+            poolOut.writeUTF(text);
+            index = add("U" + text, 1);
+        }
+        return index;
+    }
+    
+    private int classConstant(String name) throws IOException {
+        var index = constants.get("C" + name);
+        if (index == null) {
+            var utf8 = utf8Constant(name);
+            poolOut.writeByte(CLASS);
+            poolOut.writeShort(utf8);
+            index = add("C" + name, 1);
+        }
+        return index;
+    }
+    
+    private int methodConstant(String owner, String name, String descriptor) throws IOException {
+        var key = "M" + owner + "." + name + descriptor;
+        var index = constants.get(key);
+        if (index == null) {
+            var ownerIndex = classConstant(owner);
+            var nameIndex = utf8Constant(name);
+            var descriptorIndex = utf8Constant(descriptor);
+            poolOut.writeByte(NAME_AND_TYPE);
+            poolOut.writeShort(nameIndex);
+            poolOut.writeShort(descriptorIndex);
+            var nameAndType = add("N" + name + descriptor, 1);
+            poolOut.writeByte(METHODREF);
+            poolOut.writeShort(ownerIndex);
+            poolOut.writeShort(nameAndType);
+            index = add(key, 1);
+        }
+        return index;
+    }
+    
+    private int intConstant(int value) throws IOException {
+        var key = "I" + value;
+        var index = constants.get(key);
+        if (index == null) {
+            poolOut.writeByte(INTEGER);
+            poolOut.writeInt(value);
+            index = add(key, 1);
+        }
+        return index;
+    }
+    
+    private int doubleConstant(double value) throws IOException {
+        var key = "D" + Double.doubleToRawLongBits(value);
+        var index = constants.get(key);
+        if (index == null) {
+            poolOut.writeByte(DOUBLE);
+            poolOut.writeDouble(value);
+            index = add(key, 2);
+        }
+        return index;
+    }
+    
+    /** Registers the entry just written, {@code double} constants take two pool entries. */
+    private int add(String key, int size) {
+        var index = poolCount;
+        poolCount += size;
+        constants.put(key, index);
+        return index;
+    }
+    
+    private static void writeShort(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 8);
+        out.write(value);
+    }
+}
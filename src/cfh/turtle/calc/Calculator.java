@@ -6,9 +6,10 @@ package cfh.turtle.calc;
 
 import static java.util.Objects.*;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Scanner;
-import java.util.Stack;
+
+import cfh.turtle.jfr.ExpressionEvent;
 
 /**
  * @author Carlos F. Heuberger, 2022-09-20
@@ -16,64 +17,104 @@ import java.util.Stack;
  */
 public class Calculator {
 
+    /** maximal number of compiled expressions kept in the cache. */
+    public static final int CACHE_SIZE = 256;
+    
+    /** variables by name, {@code null} if using {@link #frame}. */
     private final Map<String, Value> variables;
+    /** variables by slot, {@code null} if using {@link #variables}. */
+    private final Frame frame;
+    private final EvalStack stack = new EvalStack();
+    
+    @SuppressWarnings("serial")
+    private final Map<String, Expression> cache = new LinkedHashMap<>(32, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Expression> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+    
+    private Tracer tracer = null;
     
+    /** Calculator looking up variables by name in the given map. */
     public Calculator(Map<String, Value> variables) {
         this.variables = requireNonNull(variables);
+        this.frame = null;
+    }
+    
+    /** Calculator with variables resolved to slots of the given frame when compiling. */
+    public Calculator(Frame frame) {
+        this.variables = null;
+        this.frame = requireNonNull(frame);
+    }
+    
+    /** @return the frame or {@code null} if variables are looked up by name. */
+    public Frame frame() { return frame; }
+    
+    /** Sets the tracer for following evaluations, {@code null} to disable tracing. */
+    public void tracer(Tracer tracer) {
+        this.tracer = tracer;
+    }
+    
+    public Tracer tracer() { return tracer; }
+    
+    /**
+     * Compiles the expression, or returns the cached one if the same text was compiled before.
+     * 
+     * @throws IllegalArgumentException if the expression is invalid
+     */
+    public Expression compile(String text) throws IllegalArgumentException {
+        return cache.computeIfAbsent(text, t -> Expression.compile(t, frame));
     }
     
     public Value eval(String text) throws NumberFormatException, IllegalArgumentException {
-        var values = new Stack<Value>();
-        var operators = new Stack<Operator>();
-        
-        System.out.println(text);  // XXX
-        try (var scanner = new Scanner(text);) {
-            while (scanner.hasNext()) {
-                var word = scanner.next();
-                
-                if (Operator.is(word)) {
-                    var op = Operator.get(word);
-                    if (op == Operator.RPAR) {
-                        while (!operators.isEmpty() && operators.peek() != Operator.LPAR) {
-                            var top = operators.pop();
-                            top.execute(values);
-                        }
-                        if (operators.isEmpty() || operators.pop() != Operator.LPAR)
-                            throw new IllegalArgumentException("mismatched parenthesis");
-                        
-                    } else {
-                        while (!operators.isEmpty()
-                            && operators.peek() != Operator.LPAR
-                            && operators.peek().before(op) )
-                        {
-                            var top = operators.pop();
-                            top.execute(values);
-                        }
-                        operators.push(op);
-                    }
-
-                } else if(variables.containsKey(word)) {
-                    var value = variables.get(word);
-                    values.push(value);
-                    
-                } else {
-                    var value = Value.of(word);
-                    values.push(value);
-                }
-            }
+        return eval(compile(text));
+    }
+    
+    public Value eval(Expression expression) throws IllegalArgumentException {
+        run(expression);
+        var value = stack.pop();
+        if (tracer != null) {
+            tracer.result(expression, value.asDouble());
+        }
+        return value;
+    }
+    
+    /** Evaluates the expression without boxing the result. */
+    public double evalDouble(Expression expression) throws IllegalArgumentException {
+        run(expression);
+        var value = stack.popDouble();
+        if (tracer != null) {
+            tracer.result(expression, value);
+        }
+        return value;
+    }
+    
+    /**
+     * Evaluates the expression and assigns the result to the variable in the given slot.
+     * 
+     * @throws IllegalStateException if this calculator does not use a frame
+     */
+    public void assign(int slot, Expression expression) throws IllegalArgumentException {
+        if (frame == null)
+            throw new IllegalStateException("no frame");
+        run(expression);
+        if (tracer != null) {
+            tracer.result(expression, stack.peekDouble(0));
         }
-        
-        while (!operators.isEmpty()) {
-            var op = operators.pop();
-            op.execute(values);
+        frame.pop(slot, stack);
+    }
+    
+    private void run(Expression expression) {
+        if (tracer != null) {
+            tracer.expression(expression);
         }
-        
-        if (values.size() != 1) {
-            System.err.println(values);
-            throw new IllegalArgumentException("invalid expression");
+        var event = new ExpressionEvent();
+        event.begin();
+        expression.run(variables, frame, stack, tracer);
+        if (event.shouldCommit()) {
+            event.expression = expression.text();
+            event.commit();
         }
-        
-        System.out.println();  // XXX
-        return values.pop();
     }
 }
@@ -0,0 +1,20 @@
+/*
+ * Copyright: Carlos F. Heuberger. All rights reserved.
+ *
+ */
+package cfh.turtle.calc;
+
+/**
+ * An expression compiled to bytecode by {@link BytecodeCompiler}.
+ * 
+ * @author Carlos F. Heuberger, 2026-10-18
+ *
+ */
+interface CompiledExpression {
+
+    /**
+     * @param values  the frame values, all variables used by the expression must be defined
+     * @return the result, an exact {@code int} if the root operator is {@link Operator#integer()}
+     */
+    public double eval(double[] values);
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright: Carlos F. Heuberger. All rights reserved.
+ *
+ */
+package cfh.turtle.calc;
+
+import java.util.Arrays;
+
+/**
+ * Primitive evaluation stack.
+ * Values are kept in a {@code double} array together with a tag telling if the value is an 
+ * integer ({@link Value.Int}) or not ({@link Value.Num}); {@code int} values are exactly 
+ * representable as {@code double}. Pushing and popping does not allocate, only growing the 
+ * stack beyond its capacity does.
+ * Not thread-safe.
+ * 
+ * @author Carlos F. Heuberger, 2026-10-18
+ *
+ */
+public final class EvalStack {
+
+    private double[] values;
+    private boolean[] ints;
+    private int size = 0;
+    
+    public EvalStack() {
+        this(16);
+    }
+    
+    public EvalStack(int capacity) {
+        values = new double[capacity];
+        ints = new boolean[capacity];
+    }
+    
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+    public void clear() { size = 0; }
+    
+    public void ensureCapacity(int capacity) {
+        if (capacity > values.length) {
+            values = Arrays.copyOf(values, capacity);
+            ints = Arrays.copyOf(ints, capacity);
+        }
+    }
+    
+    public void pushInt(int value) {
+        if (size == values.length) {
+            ensureCapacity(2 * size + 1);
+        }
+        values[size] = value;
+        ints[size] = true;
+        size += 1;
+    }
+    
+    public void pushDouble(double value) {
+        if (size == values.length) {
+            ensureCapacity(2 * size + 1);
+        }
+        values[size] = value;
+        ints[size] = false;
+        size += 1;
+    }
+    
+    public void push(Value value) {
+        if (value instanceof Value.Int) {
+            pushInt(value.asInt());
+        } else {
+            pushDouble(value.asDouble());
+        }
+    }
+    
+    /** @return the top value converted like {@link Value#asInt()}. */
+    public int popInt() {
+        check(1);
+        size -= 1;
+        var value = values[size];
+        return ints[size] ? (int) value : (int) Math.round(value);
+    }
+    
+    /** @return the top value converted like {@link Value#asDouble()}. */
+    public double popDouble() {
+        check(1);
+        size -= 1;
+        return values[size];
+    }
+    
+    /** @return the top value, boxed. */
+    public Value pop() {
+        check(1);
+        size -= 1;
+        return ints[size] ? Value.of((int) values[size]) : Value.of(values[size]);
+    }
+    
+    /** @return if the top value is an integer. */
+    public boolean topIsInt() {
+        check(1);
+        return ints[size - 1];
+    }
+    
+    /** @return the value {@code depth} entries below the top, as double, without removing it. */
+    public double peekDouble(int depth) {
+        check(depth + 1);
+        return values[size - 1 - depth];
+    }
+    
+    /** @throws ArithmeticException if the stack has less than {@code count} values. */
+    public void check(int count) throws ArithmeticException {
+        if (size < count)
+            throw new ArithmeticException("not enough values");
+    }
+    
+    @Override
+    public String toString() {
+        var builder = new StringBuilder("[");
+        for (var i = 0; i < size; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            if (ints[i]) {
+                builder.append((int) values[i]);
+            } else {
+                builder.append(values[i]);
+            }
+        }
+        return builder.append(']').toString();
+    }
+}
@@ -0,0 +1,318 @@
+/*
+ * Copyright: Carlos F. Heuberger. All rights reserved.
+ *
+ */
+package cfh.turtle.calc;
+
+import static java.util.Objects.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+import java.util.stream.IntStream;
+
+import cfh.turtle.jfr.ExpressionCompileEvent;
+
+/**
+ * An expression compiled into postfix (reverse polish) notation.
+ * Tokenizing and operator precedence are resolved once by {@link #compile(String)}, 
+ * evaluation just runs the postfix program against a primitive {@link EvalStack}.
+ * The postfix program is immutable and can be evaluated any number of times, also by several
+ * threads. The only mutable state is the bytecode tier: after {@link #COMPILE_THRESHOLD} 
+ * evaluations against a frame, the expression is compiled once to bytecode used by following
+ * evaluations; if that fails it is reported as {@link ExpressionCompileEvent} and the 
+ * expression stays interpreted.
+ * 
+ * @author Carlos F. Heuberger, 2026-10-18
+ *
+ */
+public final class Expression {
+
+    /**
+     * Compiles the given text using the shunting-yard algorithm.
+     * Variables are looked up by name when evaluating.
+     * 
+     * @throws IllegalArgumentException if the expression is invalid
+     */
+    public static Expression compile(String text) throws IllegalArgumentException {
+        return compile(text, null);
+    }
+    
+    /**
+     * Compiles the given text using the shunting-yard algorithm.
+     * Variables are resolved to slots of the given frame, which should then be used for evaluation.
+     * 
+     * @param frame  the frame to resolve variables, {@code null} to look them up by name
+     * @throws IllegalArgumentException if the expression is invalid
+     */
+    public static Expression compile(String text, Frame frame) throws IllegalArgumentException {
+        requireNonNull(text);
+        var code = new ArrayList<Object>();
+        var operators = new Stack<Operator>();
+        var depth = 0;
+        var maxDepth = 0;
+        
+        var lexer = new Lexer(text);
+        while (lexer.next()) {
+            switch (lexer.kind()) {
+                case OPERATOR -> {
+                    var op = lexer.operator();
+                    if (op == Operator.RPAR) {
+                        while (!operators.isEmpty() && operators.peek() != Operator.LPAR) {
+                            depth = emit(code, operators.pop(), depth);
+                        }
+                        if (operators.isEmpty() || operators.pop() != Operator.LPAR)
+                            throw new IllegalArgumentException("mismatched parenthesis");
+                        
+                    } else {
+                        while (!operators.isEmpty()
+                            && operators.peek() != Operator.LPAR
+                            && operators.peek().before(op) )
+                        {
+                            depth = emit(code, operators.pop(), depth);
+                        }
+                        operators.push(op);
+                    }
+                }
+                case NUMBER -> {
+                    code.add(lexer.number());
+                    depth += 1;
+                    maxDepth = Math.max(maxDepth, depth);
+                }
+                case IDENTIFIER -> {
+                    code.add(lexer.token());
+                    depth += 1;
+                    maxDepth = Math.max(maxDepth, depth);
+                }
+            }
+        }
+        
+        while (!operators.isEmpty()) {
+            var op = operators.pop();
+            if (op == Operator.LPAR)
+                throw new IllegalArgumentException("mismatched parenthesis");
+            depth = emit(code, op, depth);
+        }
+        
+        if (depth != 1)
+            throw new IllegalArgumentException("invalid expression: " + text);
+        
+        return new Expression(text, code, maxDepth, frame);
+    }
+    
+    private static int emit(ArrayList<Object> code, Operator op, int depth) {
+        if (depth < 2)
+            throw new IllegalArgumentException("not enough values for " + op);
+        code.add(op);
+        return depth - 1;
+    }
+    
+    //----------------------------------------------------------------------------------------------
+    
+    /**
+     * Number of evaluations against a frame after which the expression is compiled to bytecode, 
+     * set by the {@code cfh.turtle.calc.compile} system property; {@code 0} disables compiling.
+     */
+    public static final int COMPILE_THRESHOLD = Integer.getInteger("cfh.turtle.calc.compile", 1_000);
+    
+    static final byte INT = 0;
+    static final byte NUM = 1;
+    static final byte VAR = 2;
+    static final byte OP = 3;
+    
+    private final String text;
+    private final int maxDepth;
+    
+    // postfix program, one entry per instruction in each array
+    private final byte[] kinds;
+    private final double[] literals;
+    private final String[] names;
+    private final int[] slots;
+    private final Operator[] operators;
+    
+    /** if all variables are resolved to slots and there is at least one operator. */
+    private final boolean compilable;
+    /** distinct slots used, must be defined to use {@link #compiled}. */
+    private final int[] usedSlots;
+    /** if the last operator returns an {@code int}, checked once: {@link Operator#integer()} is slow on lambdas. */
+    private final boolean integer;
+    
+    /** 
+     * deliberately not synchronized: increments lost between threads only delay compiling, 
+     * which is guarded by {@link #compile()}.
+     */
+    private int evaluations = 0;
+    private volatile CompiledExpression compiled = null;
+    private volatile boolean failed = false;
+    
+    private Expression(String text, List<Object> code, int maxDepth, Frame frame) {
+        this.text = text;
+        this.maxDepth = maxDepth;
+        var length = code.size();
+        kinds = new byte[length];
+        literals = new double[length];
+        names = new String[length];
+        slots = new int[length];
+        operators = new Operator[length];
+        for (var i = 0; i < length; i++) {
+            var instruction = code.get(i);
+            if (instruction instanceof Operator op) {
+                kinds[i] = OP;
+                operators[i] = op;
+            } else if (instruction instanceof Value.Int value) {
+                kinds[i] = INT;
+                literals[i] = value.asInt();
+            } else if (instruction instanceof Value value) {
+                kinds[i] = NUM;
+                literals[i] = value.asDouble();
+            } else {
+                kinds[i] = VAR;
+                names[i] = (String) instruction;
+                slots[i] = frame == null ? -1 : frame.slot(names[i]);
+            }
+        }
+        compilable = frame != null && length > 1 && COMPILE_THRESHOLD > 0;
+        usedSlots = frame == null ? new int[0] : IntStream.of(slots).filter(slot -> slot >= 0).distinct().toArray();
+        integer = length > 0 && operators[length-1] != null && operators[length-1].integer();
+    }
+    
+    public String text() { return text; }
+    
+    /** @return the maximal stack size needed to evaluate this expression. */
+    public int maxDepth() { return maxDepth; }
+    
+    /** @return if evaluation uses generated bytecode, after {@link #COMPILE_THRESHOLD} evaluations. */
+    public boolean compiled() { return compiled != null; }
+    
+    /**
+     * Evaluates this expression.
+     * 
+     * @param variables  values of the variables used in the expression
+     * @throws IllegalArgumentException if a variable is not defined
+     */
+    public Value eval(Map<String, Value> variables) throws IllegalArgumentException {
+        var stack = new EvalStack(maxDepth);
+        run(requireNonNull(variables), null, stack, null);
+        return stack.pop();
+    }
+    
+    /**
+     * Evaluates this expression using the given stack, which is cleared before.
+     * 
+     * @see #eval(Map)
+     */
+    public Value eval(Map<String, Value> variables, EvalStack stack) throws IllegalArgumentException {
+        run(requireNonNull(variables), null, stack, null);
+        return stack.pop();
+    }
+    
+    /**
+     * Evaluates this expression without boxing the result.
+     * 
+     * @see #eval(Map, EvalStack)
+     */
+    public double evalDouble(Map<String, Value> variables, EvalStack stack) throws IllegalArgumentException {
+        run(requireNonNull(variables), null, stack, null);
+        return stack.popDouble();
+    }
+    
+    /**
+     * Evaluates this expression reading the variables from the frame it was compiled with.
+     * 
+     * @throws IllegalArgumentException if a variable is not defined
+     * @see #compile(String, Frame)
+     */
+    public Value eval(Frame frame, EvalStack stack) throws IllegalArgumentException {
+        run(null, requireNonNull(frame), stack, null);
+        return stack.pop();
+    }
+    
+    /**
+     * Evaluates this expression without boxing the result.
+     * 
+     * @see #eval(Frame, EvalStack)
+     */
+    public double evalDouble(Frame frame, EvalStack stack) throws IllegalArgumentException {
+        run(null, requireNonNull(frame), stack, null);
+        return stack.popDouble();
+    }
+    
+    /** 
+     * Runs the postfix program leaving the result on the stack.
+     * Variables are read from the frame if not {@code null}, otherwise from the map.
+     * The tracer, if not {@code null}, is called for each operator; 
+     * it is not called for the start or end of the evaluation.
+     */
+    void run(Map<String, Value> variables, Frame frame, EvalStack stack, Tracer tracer) {
+        if (compilable && frame != null && tracer == null) {
+            var code = compiled;
+            if (code == null && !failed && ++evaluations >= COMPILE_THRESHOLD) {
+                code = compile();
+            }
+            if (code != null && frame.defined(usedSlots)) {
+                var result = code.eval(frame.values());
+                stack.clear();
+                if (integer) {
+                    stack.pushInt((int) result);
+                } else {
+                    stack.pushDouble(result);
+                }
+                return;
+            }
+        }
+        stack.clear();
+        stack.ensureCapacity(maxDepth);
+        for (var i = 0; i < kinds.length; i++) {
+            switch (kinds[i]) {
+                case OP -> {
+                    var op = operators[i];
+                    if (tracer == null) {
+                        op.execute(stack);
+                    } else {
+                        var left = stack.peekDouble(1);
+                        var right = stack.peekDouble(0);
+                        op.execute(stack);
+                        tracer.operator(this, op, left, right, stack.peekDouble(0));
+                    }
+                }
+                case INT -> stack.pushInt((int) literals[i]);
+                case NUM -> stack.pushDouble(literals[i]);
+                default -> {
+                    if (frame != null) {
+                        var slot = slots[i] != -1 ? slots[i] : frame.find(names[i]);
+                        frame.push(slot, names[i], stack);
+                    } else {
+                        var value = variables.get(names[i]);
+                        if (value == null)
+                            throw new IllegalArgumentException("undefined variable \"" + names[i] + "\"");
+                        stack.push(value);
+                    }
+                }
+            }
+        }
+    }
+    
+    private synchronized CompiledExpression compile() {
+        if (compiled == null && !failed) {
+            var event = new ExpressionCompileEvent();
+            event.begin();
+            try {
+                compiled = BytecodeCompiler.compile(kinds, literals, slots, operators);
+            } catch (ReflectiveOperationException | RuntimeException | LinkageError ex) {
+                failed = true;
+                event.failure = ex.toString();
+            }
+            if (event.shouldCommit()) {
+                event.expression = text;
+                event.commit();
+            }
+        }
+        return compiled;
+    }
+    
+    @Override
+    public String toString() {
+        return text;
+    }
+}
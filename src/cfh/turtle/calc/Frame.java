@@ -0,0 +1,161 @@
+/*
+ * Copyright: Carlos F. Heuberger. All rights reserved.
+ *
+ */
+package cfh.turtle.calc;
+
+import static java.util.Objects.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Variables resolved to fixed slot indices.
+ * Names are mapped to slots once, normally when compiling, by {@link #slot(String)};
+ * values are then read and written by index and kept in primitive arrays.
+ * Not thread-safe.
+ * 
+ * @author Carlos F. Heuberger, 2026-10-18
+ *
+ */
+public final class Frame {
+
+    private static final byte UNDEFINED = 0;
+    private static final byte INT = 1;
+    private static final byte NUM = 2;
+    
+    private final Map<String, Integer> slots = new HashMap<>();
+    private String[] names = new String[8];
+    private double[] values = new double[8];
+    private byte[] tags = new byte[8];
+    private int size = 0;
+    
+    /** @return the slot of the variable, a new slot is assigned if the name is not known. */
+    public int slot(String name) {
+        requireNonNull(name);
+        var slot = slots.get(name);
+        if (slot == null) {
+            if (size == names.length) {
+                names = Arrays.copyOf(names, 2 * size);
+                values = Arrays.copyOf(values, 2 * size);
+                tags = Arrays.copyOf(tags, 2 * size);
+            }
+            slot = size++;
+            names[slot] = name;
+            slots.put(name, slot);
+        }
+        return slot;
+    }
+    
+    /** @return the slot of the variable or {@code -1} if the name is not known. */
+    public int find(String name) {
+        var slot = slots.get(name);
+        return slot == null ? -1 : slot;
+    }
+    
+    /** @return number of slots. */
+    public int size() { return size; }
+    
+    public String name(int slot) {
+        checkIndex(slot, size);
+        return names[slot];
+    }
+    
+    public boolean defined(int slot) {
+        checkIndex(slot, size);
+        return tags[slot] != UNDEFINED;
+    }
+    
+    /** @return if all given slots are defined. */
+    boolean defined(int[] slots) {
+        for (var slot : slots) {
+            if (tags[slot] == UNDEFINED)
+                return false;
+        }
+        return true;
+    }
+    
+    /** @return the value array, indexed by slot; invalid after new slots are created. */
+    double[] values() { return values; }
+    
+    /** @return a new frame with the same slots and values. */
+    public Frame copy() {
+        var copy = new Frame();
+        copy.slots.putAll(slots);
+        copy.names = names.clone();
+        copy.values = values.clone();
+        copy.tags = tags.clone();
+        copy.size = size;
+        return copy;
+    }
+    
+    /** Undefines all variables, keeps the slots. */
+    public void clear() {
+        Arrays.fill(tags, 0, size, UNDEFINED);
+    }
+    
+    /** @return the value or {@code null} if not defined. */
+    public Value get(int slot) {
+        checkIndex(slot, size);
+        return switch (tags[slot]) {
+            case INT -> Value.of((int) values[slot]);
+            case NUM -> Value.of(values[slot]);
+            default -> null;
+        };
+    }
+    
+    public void set(int slot, Value value) {
+        if (value instanceof Value.Int) {
+            setInt(slot, value.asInt());
+        } else {
+            setDouble(slot, value.asDouble());
+        }
+    }
+    
+    public void setInt(int slot, int value) {
+        checkIndex(slot, size);
+        values[slot] = value;
+        tags[slot] = INT;
+    }
+    
+    public void setDouble(int slot, double value) {
+        checkIndex(slot, size);
+        values[slot] = value;
+        tags[slot] = NUM;
+    }
+    
+    /** 
+     * Pushes the value of the variable onto the stack.
+     * 
+     * @throws IllegalArgumentException if the variable is not defined
+     */
+    void push(int slot, String name, EvalStack stack) {
+        if (slot < 0 || slot >= size || tags[slot] == UNDEFINED)
+            throw new IllegalArgumentException("undefined variable \"" + name + "\"");
+        if (tags[slot] == INT) {
+            stack.pushInt((int) values[slot]);
+        } else {
+            stack.pushDouble(values[slot]);
+        }
+    }
+    
+    /** Pops the top value of the stack into the variable, keeping its type. */
+    void pop(int slot, EvalStack stack) {
+        checkIndex(slot, size);
+        tags[slot] = stack.topIsInt() ? INT : NUM;
+        values[slot] = stack.popDouble();
+    }
+    
+    @Override
+    public String toString() {
+        var builder = new StringBuilder("{");
+        for (var i = 0; i < size; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(names[i]).append('=').append(get(i));
+        }
+        return builder.append('}').toString();
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright: Carlos F. Heuberger. All rights reserved.
+ *
+ */
+package cfh.turtle.calc;
+
+import static java.util.Comparator.*;
+import static java.util.Objects.*;
+
+import java.util.Arrays;
+
+/**
+ * Single pass, character level tokenizer for expressions.
+ * Recognizes identifiers, integer and decimal literals, and operators, longest symbol first
+ * ({@code >>>} before {@code >>}). A sign directly followed by a digit is part of the literal
+ * if an operand is expected, that is, at the start, after an operator or after {@code (}.
+ * Does not use regular expressions nor exceptions for number parsing.
+ * 
+ * @author Carlos F. Heuberger, 2026-10-18
+ *
+ */
+final class Lexer {
+
+    enum Kind { NUMBER, IDENTIFIER, OPERATOR }
+    
+    /** operators sorted by decreasing symbol length for maximal munch. */
+    private static final Operator[] OPERATORS = Arrays.stream(Operator.values())
+        .sorted(comparingInt((Operator op) -> op.symbol().length()).reversed())
+        .toArray(Operator[]::new);
+    
+    /**
+     * Parses a complete number literal, optionally signed.
+     * 
+     * @return the value or {@code null} if the text is not a valid number
+     */
+    static Value number(String text) {
+        var end = scanNumber(text, 0);
+        return (end == text.length() && end > 0) ? value(text, 0, end) : null;
+    }
+    
+    /** @return the end of the number starting at {@code start}, or {@code start} if none. */
+    private static int scanNumber(String text, int start) {
+        var length = text.length();
+        var pos = start;
+        if (pos < length && (text.charAt(pos) == '-' || text.charAt(pos) == '+')) {
+            pos += 1;
+        }
+        var digits = pos;
+        while (pos < length && isDigit(text.charAt(pos))) {
+            pos += 1;
+        }
+        var count = pos - digits;
+        if (pos < length && text.charAt(pos) == '.') {
+            var fraction = pos + 1;
+            var end = fraction;
+            while (end < length && isDigit(text.charAt(end))) {
+                end += 1;
+            }
+            count += end - fraction;
+            if (count > 0) {
+                pos = end;
+            }
+        }
+        if (count == 0)
+            return start;
+        if (pos < length && (text.charAt(pos) == 'e' || text.charAt(pos) == 'E')) {
+            var exp = pos + 1;
+            if (exp < length && (text.charAt(exp) == '-' || text.charAt(exp) == '+')) {
+                exp += 1;
+            }
+            var end = exp;
+            while (end < length && isDigit(text.charAt(end))) {
+                end += 1;
+            }
+            if (end > exp) {
+                pos = end;
+            }
+        }
+        return pos;
+    }
+    
+    /** @return the value of the validated literal, {@code Int} if integral and in range. */
+    private static Value value(String text, int start, int end) {
+        var negative = text.charAt(start) == '-';
+        var pos = start;
+        if (text.charAt(pos) == '-' || text.charAt(pos) == '+') {
+            pos += 1;
+        }
+        var value = 0L;
+        while (pos < end && isDigit(text.charAt(pos)) && value <= Integer.MAX_VALUE + 1L) {
+            value = 10 * value + (text.charAt(pos) - '0');
+            pos += 1;
+        }
+        if (pos == end) {
+            if (negative) {
+                value = -value;
+            }
+            if (Integer.MIN_VALUE <= value && value <= Integer.MAX_VALUE)
+                return Value.of((int) value);
+        }
+        return Value.of(Double.parseDouble(text.substring(start, end)));
+    }
+    
+    private static boolean isDigit(char ch) {
+        return '0' <= ch && ch <= '9';
+    }
+    
+    //----------------------------------------------------------------------------------------------
+    
+    private final String text;
+    private int pos = 0;
+    
+    private Kind kind = null;
+    private int start;
+    private Operator operator;
+    private Value number;
+    
+    Lexer(String text) {
+        this.text = requireNonNull(text);
+    }
+    
+    /**
+     * Advances to the next token.
+     * 
+     * @return {@code false} if there are no more tokens
+     * @throws IllegalArgumentException if an invalid character is found
+     */
+    boolean next() throws IllegalArgumentException {
+        var operand = kind == null || (kind == Kind.OPERATOR && operator != Operator.RPAR);
+        var length = text.length();
+        while (pos < length && Character.isWhitespace(text.charAt(pos))) {
+            pos += 1;
+        }
+        if (pos == length) {
+            kind = null;
+            return false;
+        }
+        
+        start = pos;
+        operator = null;
+        number = null;
+        var ch = text.charAt(pos);
+        
+        if (isDigit(ch) || ch == '.' || (operand && (ch == '-' || ch == '+'))) {
+            var end = scanNumber(text, pos);
+            if (end > pos) {
+                number = value(text, pos, end);
+                kind = Kind.NUMBER;
+                pos = end;
+                return true;
+            }
+        }
+        
+        if (Character.isJavaIdentifierStart(ch)) {
+            pos += 1;
+            while (pos < length && Character.isJavaIdentifierPart(text.charAt(pos))) {
+                pos += 1;
+            }
+            kind = Kind.IDENTIFIER;
+            return true;
+        }
+        
+        for (var op : OPERATORS) {
+            if (text.startsWith(op.symbol(), pos)) {
+                operator = op;
+                kind = Kind.OPERATOR;
+                pos += op.symbol().length();
+                return true;
+            }
+        }
+        
+        throw new IllegalArgumentException("unexpected '" + ch + "' at " + pos + " in \"" + text + "\"");
+    }
+    
+    Kind kind() { return kind; }
+    
+    /** @return the text of the current token. */
+    String token() { return text.substring(start, pos); }
+    
+    /** @return the operator if the current token is an {@link Kind#OPERATOR}. */
+    Operator operator() { return operator; }
+    
+    /** @return the value if the current token is a {@link Kind#NUMBER}. */
+    Value number() { return number; }
+}
@@ -9,8 +9,6 @@ import static java.util.stream.Collectors.*;
 
 import java.util.Arrays;
 import java.util.Map;
-import java.util.Stack;
-import java.util.function.Consumer;
 import java.util.function.DoubleBinaryOperator;
 import java.util.function.IntBinaryOperator;
 
@@ -41,9 +39,15 @@ public enum Operator {
     LEF_SHIFT("<<", 100, true, opII((a,b) -> a << b)),
     RIGHT_SHIFT(">>", 100, true, opII((a,b) -> a >> b)),
     UNSIGNED_SHIFT(">>>", 100, true, opII((a,b) -> a >>>b)),
-    // shift << >> >>> 
-    // relational < > <= >=
-    // equal == !=
+    
+    LESS("<", 90, true, opDI((a,b) -> a < b)),
+    GREATER(">", 90, true, opDI((a,b) -> a > b)),
+    LESS_EQUAL("<=", 90, true, opDI((a,b) -> a <= b)),
+    GREATER_EQUAL(">=", 90, true, opDI((a,b) -> a >= b)),
+    
+    EQUAL("==", 80, true, opDI((a,b) -> a == b)),
+    NOT_EQUAL("!=", 80, true, opDI((a,b) -> a != b)),
+    
     // AND &
     // XOR ^
     // OR |
@@ -64,26 +68,28 @@ public enum Operator {
     public static boolean is(String symbol) { return operators.containsKey(symbol); }
     public static Operator get(String symbol) { return operators.get(symbol); }
     
-    private static Consumer<Stack<Value>> opII(IntBinaryOperator op) {
-        return (Stack<Value> stack) -> {
-            if (stack.size() < 2)
-                throw new ArithmeticException("not enough values");
-            var right = stack.pop().asInt();
-            var left = stack.pop().asInt();
-            var result = op.applyAsInt(left, right);
-            System.out.printf("(%s %s) = %s", left, right, result);  // XXX
-            stack.push(Value.of(result));
+    private static Runner opII(IntBinaryOperator op) {
+        return (IntRunner) (EvalStack stack) -> {
+            stack.check(2);
+            var right = stack.popInt();
+            var left = stack.popInt();
+            stack.pushInt(op.applyAsInt(left, right));
+        };
+    }
+    private static Runner opDI(DoubleComparison op) {
+        return (CompareRunner) (EvalStack stack) -> {
+            stack.check(2);
+            var right = stack.popDouble();
+            var left = stack.popDouble();
+            stack.pushInt(op.test(left, right) ? 1 : 0);
         };
     }
-    private static Consumer<Stack<Value>> opDD(DoubleBinaryOperator op) {
-        return (Stack<Value> stack) -> {
-            if (stack.size() < 2)
-                throw new ArithmeticException("not enough values");
-            var right = stack.pop().asDouble();
-            var left = stack.pop().asDouble();
-            var result = op.applyAsDouble(left, right);
-            System.out.printf("(%s %s) = %s", left, right, result);  // XXX
-            stack.push(Value.of(result));
+    private static Runner opDD(DoubleBinaryOperator op) {
+        return (EvalStack stack) -> {
+            stack.check(2);
+            var right = stack.popDouble();
+            var left = stack.popDouble();
+            stack.pushDouble(op.applyAsDouble(left, right));
         };
     }
 
@@ -92,9 +98,9 @@ public enum Operator {
     private final String symbol;
     private final int precedence;
     private final boolean left;
-    private final Consumer<Stack<Value>> runner;
+    private final Runner runner;
     
-    private Operator(String symbol, int precedence, boolean left, Consumer<Stack<Value>> runner) {
+    private Operator(String symbol, int precedence, boolean left, Runner runner) {
         assert !symbol.isBlank() : "blank symbol";
         this.symbol = symbol;
         this.precedence = precedence;
@@ -105,20 +111,46 @@ public enum Operator {
     public String symbol() { return symbol; }
     public boolean left() { return left; }
     
+    /** @return if this operator returns integer values ({@link Value.Int}); comparisons return 1 or 0. */
+    public boolean integer() { return runner instanceof IntRunner || runner instanceof CompareRunner; }
+    
+    /** @return if this operator works on integer values, see {@link Value#asInt()}. */
+    public boolean integerOperands() { return runner instanceof IntRunner; }
+    
     public boolean before(Operator other) {
         return (this.precedence > other.precedence) 
             || (this.precedence == other.precedence && this.left);
     }
     
-    public void execute(Stack<Value> stack) {
-        System.out.print(symbol);  // XXX
-        System.out.flush();
-        runner.accept(stack);
-        System.out.println();  // XXX
+    /** Applies this operator to the top values of the stack, replacing them by the result. */
+    public void execute(EvalStack stack) {
+        runner.run(stack);
     }
     
     @Override
     public String toString() {
         return symbol;
     }
+    
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+    
+    @FunctionalInterface
+    private static interface Runner {
+        public void run(EvalStack stack);
+    }
+    
+    @FunctionalInterface
+    private static interface IntRunner extends Runner {
+        //
+    }
+    
+    @FunctionalInterface
+    private static interface CompareRunner extends Runner {
+        //
+    }
+    
+    @FunctionalInterface
+    private static interface DoubleComparison {
+        public boolean test(double left, double right);
+    }
 }
@@ -0,0 +1,114 @@
+/*
+ * Copyright: Carlos F. Heuberger. All rights reserved.
+ *
+ */
+package cfh.turtle.calc;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * Tracer keeping the last {@code capacity} trace entries in a ring buffer, 
+ * older entries are overwritten. Recording does not allocate.
+ * Thread-safe: entries of concurrent evaluations are interleaved.
+ * 
+ * @author Carlos F. Heuberger, 2026-10-18
+ *
+ */
+public final class RingTracer implements Tracer {
+
+    private static final byte START = 0;
+    private static final byte OPERATOR = 1;
+    private static final byte RESULT = 2;
+    
+    private final byte[] kinds;
+    private final Expression[] expressions;
+    private final Operator[] operators;
+    private final double[] lefts;
+    private final double[] rights;
+    private final double[] results;
+    
+    private int next = 0;
+    private long count = 0;
+    
+    public RingTracer(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("invalid capacity: " + capacity);
+        kinds = new byte[capacity];
+        expressions = new Expression[capacity];
+        operators = new Operator[capacity];
+        lefts = new double[capacity];
+        rights = new double[capacity];
+        results = new double[capacity];
+    }
+    
+    public int capacity() { return expressions.length; }
+    
+    /** @return number of entries currently in the buffer. */
+    public synchronized int size() { return (int) Math.min(count, expressions.length); }
+    
+    /** @return total number of entries recorded since creation or last {@link #clear()}. */
+    public synchronized long count() { return count; }
+    
+    public synchronized void clear() {
+        Arrays.fill(expressions, null);
+        Arrays.fill(operators, null);
+        next = 0;
+        count = 0;
+    }
+    
+    @Override
+    public void expression(Expression expression) {
+        add(START, expression, null, 0, 0, 0);
+    }
+    
+    @Override
+    public void operator(Expression expression, Operator operator, double left, double right, double result) {
+        add(OPERATOR, expression, operator, left, right, result);
+    }
+    
+    @Override
+    public void result(Expression expression, double result) {
+        add(RESULT, expression, null, 0, 0, result);
+    }
+    
+    private synchronized void add(byte kind, Expression expression, Operator operator, double left, double right, double result) {
+        kinds[next] = kind;
+        expressions[next] = expression;
+        operators[next] = operator;
+        lefts[next] = left;
+        rights[next] = right;
+        results[next] = result;
+        next = (next + 1) % expressions.length;
+        count += 1;
+    }
+    
+    /** Writes the entries, oldest first, one per line. */
+    public synchronized void dump(Appendable out) throws IOException {
+        var size = size();
+        var first = (next - size + expressions.length) % expressions.length;
+        for (var i = 0; i < size; i++) {
+            var index = (first + i) % expressions.length;
+            switch (kinds[index]) {
+                case START -> out.append(expressions[index].text());
+                case RESULT -> out.append("= ").append(Double.toString(results[index]));
+                default -> out.append("  ").append(operators[index].symbol())
+                    .append('(').append(Double.toString(lefts[index]))
+                    .append(' ').append(Double.toString(rights[index]))
+                    .append(") = ").append(Double.toString(results[index]));
+            }
+            out.append(System.lineSeparator());
+        }
+    }
+    
+    @Override
+    public String toString() {
+        var builder = new StringBuilder();
+        try {
+            dump(builder);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return builder.toString();
+    }
+}
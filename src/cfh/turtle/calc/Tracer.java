@@ -0,0 +1,25 @@
+/*
+ * Copyright: Carlos F. Heuberger. All rights reserved.
+ *
+ */
+package cfh.turtle.calc;
+
+/**
+ * Listener for tracing the evaluation of expressions, see {@link Calculator#tracer(Tracer)}.
+ * Called synchronously by the evaluating thread, implementations should be fast.
+ * Calculators of spawned turtles share the tracer, so it may be called by several threads.
+ * 
+ * @author Carlos F. Heuberger, 2026-10-18
+ *
+ */
+public interface Tracer {
+
+    /** Evaluation of the expression started. */
+    public void expression(Expression expression);
+    
+    /** The operator was applied to the operands {@code left} and {@code right}. */
+    public void operator(Expression expression, Operator operator, double left, double right, double result);
+    
+    /** Evaluation of the expression finished. */
+    public void result(Expression expression, double result);
+}
@@ -11,15 +11,15 @@ package cfh.turtle.calc;
 public sealed interface Value  {
 
     public static Value of(String text) throws NumberFormatException {
-        try {
-            return new Int(Integer.parseInt(text));
-        } catch (NumberFormatException ex) {
-            return new Num(Double.parseDouble(text));
-        }
+        var value = Lexer.number(text);
+        if (value == null)
+            throw new NumberFormatException("For input string: \"" + text + "\"");
+        return value;
     }
 
+    /** @return the value, small integers are cached. */
     static Value of(int value) {
-        return new Int(value);
+        return Int.of(value);
     }
     
     static Value of(double value) {
@@ -49,6 +49,19 @@ public sealed interface Value  {
     //==============================================================================================
     
     final class Int implements Value {
+        private static final int CACHE_LOW = -128;
+        private static final Int[] CACHE = new Int[1024 - CACHE_LOW + 1];
+        static {
+            for (var i = 0; i < CACHE.length; i++) {
+                CACHE[i] = new Int(i + CACHE_LOW);
+            }
+        }
+        
+        static Int of(int value) {
+            var index = value - CACHE_LOW;
+            return (index >= 0 && index < CACHE.length) ? CACHE[index] : new Int(value);
+        }
+        
         private final int value;
         
         Int(int value) { this.value = value; }
@@ -0,0 +1,185 @@
+/*
+ * Copyright: Carlos F. Heuberger. All rights reserved.
+ *
+ */
+package cfh.turtle.engine;
+
+import static java.lang.Math.*;
+import static java.util.Objects.*;
+
+import java.util.Arrays;
+
+import cfh.turtle.geom.SegmentStore;
+
+/**
+ * Headless turtle: position, direction and pen, recording the drawn path.
+ * <p>
+ * The direction is in degrees, counterclockwise, normalized to {@code [0, 360)}; {@code y} points
+ * down, as on the screen. Sine and cosine of the direction are cached and only recomputed when
+ * the direction changes, not for every move.
+ * <p>
+ * A display is attached as {@link Listener}, it is called by the thread driving the turtle.
+ * Not thread-safe: only one thread may drive the turtle. Readers in other threads see all
+ * points of the path up to its published size, see {@link SegmentStore}.
+ *
+ * @author Carlos F. Heuberger, 2026-10-18
+ *
+ */
+public final class Engine {
+
+    private static final Listener[] NONE = {};
+
+    private final SegmentStore path;
+
+    private double dir;
+    private double cos;
+    private double sin;
+    private double x;
+    private double y;
+    private boolean pen;
+
+    private Listener[] listeners = NONE;
+
+    /** Engine recording its path in double precision. */
+    public Engine() {
+        this(SegmentStore.Precision.DOUBLE);
+    }
+
+    /** Engine recording its path in the given precision, {@code FLOAT} halves its memory. */
+    public Engine(SegmentStore.Precision precision) {
+        path = new SegmentStore(precision);
+        reset();
+    }
+
+    /* spawned engine, with the actual state of the parent and a new path */
+    private Engine(Engine parent) {
+        path = new SegmentStore(parent.path.precision());
+        dir = parent.dir;
+        cos = parent.cos;
+        sin = parent.sin;
+        x = parent.x;
+        y = parent.y;
+        pen = parent.pen;
+        path.moveTo(x, y);
+    }
+
+    /** @return a new engine starting with the state of this one, with its own path and no listeners. */
+    public Engine spawn() {
+        return new Engine(this);
+    }
+
+    public SegmentStore path() { return path; }
+
+    public double dir() { return dir; }
+    public double x() { return x; }
+    public double y() { return y; }
+    public boolean pen() { return pen; }
+
+    //----------------------------------------------------------------------------------------------
+
+    public void addListener(Listener listener) {
+        requireNonNull(listener);
+        listeners = Arrays.copyOf(listeners, listeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+    }
+
+    public void removeListener(Listener listener) {
+        for (var i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                var copy = Arrays.copyOf(listeners, listeners.length - 1);
+                System.arraycopy(listeners, i + 1, copy, i, copy.length - i);
+                listeners = copy;
+                return;
+            }
+        }
+    }
+
+    //----------------------------------------------------------------------------------------------
+
+    /** Back to the origin, direction {@code 0} and pen down, the path is cleared. */
+    public void reset() {
+        dir = 0;
+        cos = 1;
+        sin = 0;
+        x = y = 0;
+        pen = true;
+        path.reset();
+        path.moveTo(x, y);
+        for (var listener : listeners) {
+            listener.reset(this);
+        }
+    }
+
+    public void left(double degrees) {
+        heading(dir + degrees);
+    }
+
+    public void right(double degrees) {
+        heading(dir - degrees);
+    }
+
+    /** Sets the direction, in degrees counterclockwise. */
+    public void heading(double degrees) {
+        var d = degrees % 360;
+        if (d < 0) {
+            d += 360;
+        }
+        if (d != dir) {
+            dir = d;
+            var angle = toRadians(d);
+            cos = Math.cos(angle);
+            sin = Math.sin(angle);
+        }
+        for (var listener : listeners) {
+            listener.changed(this);
+        }
+    }
+
+    public void pen(boolean down) {
+        pen = down;
+        for (var listener : listeners) {
+            listener.changed(this);
+        }
+    }
+
+    /**
+     * Moves the turtle, drawing a line if the pen is down.
+     * @return index of the point in the path, a trailing move is replaced by a new one
+     */
+    public int forward(double amount) {
+        x += amount * cos;
+        y -= amount * sin;
+        var index = path.size();
+        if (pen) {
+            path.lineTo(x, y);
+        } else {
+            if (index > 0 && path.isMove(index - 1)) {
+                index -= 1;
+            }
+            path.moveTo(x, y);
+        }
+        for (var listener : listeners) {
+            listener.moved(this, index, amount);
+        }
+        return index;
+    }
+
+    public int backward(double amount) {
+        return forward(-amount);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /** Display or other observer of an engine, called by the thread driving the turtle. */
+    public static interface Listener {
+
+        /** After the turtle moved to the point with the given index of the path. */
+        public default void moved(Engine engine, int index, double distance) { }
+
+        /** After the direction or the pen changed. */
+        public default void changed(Engine engine) { }
+
+        /** After the turtle and its path were reset. */
+        public default void reset(Engine engine) { }
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright: Carlos F. Heuberger. All rights reserved.
+ *
+ */
+package cfh.turtle.engine;
+
+import static java.util.Objects.*;
+
+import java.awt.Shape;
+import java.awt.geom.PathIterator;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Streaming export of a drawing, one line per point of the path.
+ * <p>
+ * The path is written while iterating it, with one coordinate array and one line buffer per
+ * call, so memory does not depend on the size of the drawing. Works with any {@link Shape}
+ * made of moves and lines, the path of an {@link Engine} or the merged drawing of a recorder.
+ * Output streams and channels are written as UTF-8 and only flushed, not closed.
+ *
+ * @author Carlos F. Heuberger, 2026-10-18
+ *
+ */
+public enum Export {
+
+    /** 
+     * {@code move   20   -5}, coordinates rounded to integers, as {@code Turtle.toString()};
+     * lines end with the platform line separator.
+     */
+    TEXT {
+        @Override
+        void point(Line line, boolean move, double x, double y) {
+            line.append(move ? "move " : "line ").integer(x, 4).append(' ').integer(y, 4);
+        }
+        @Override
+        String separator() {
+            return System.lineSeparator();
+        }
+    },
+
+    /** {@code type,x,y} header, then {@code move,20,-5.25}. */
+    CSV {
+        @Override
+        void header(Shape path, Line line) {
+            line.append("type,x,y");
+        }
+        @Override
+        void point(Line line, boolean move, double x, double y) {
+            line.append(move ? "move," : "line,").decimal(x).append(',').decimal(y);
+        }
+    },
+
+    /** SVG document with one path element, the view box is the bounds of the drawing. */
+    SVG {
+        @Override
+        void header(Shape path, Line line) {
+            var bounds = path.getBounds2D();
+            bounds.add(0, 0);
+            line.append("<svg xmlns=\"http://www.w3.org/2000/svg\" viewBox=\"")
+            .decimal(bounds.getX() - 10).append(' ').decimal(bounds.getY() - 10).append(' ')
+            .decimal(bounds.getWidth() + 20).append(' ').decimal(bounds.getHeight() + 20)
+            .append("\">\n<path fill=\"none\" stroke=\"black\" d=\"");
+        }
+        @Override
+        void point(Line line, boolean move, double x, double y) {
+            SVG_DATA.point(line, move, x, y);
+        }
+        @Override
+        void footer(Line line) {
+            line.append("\"/>\n</svg>");
+        }
+    },
+
+    /** Only the data of a SVG path element: {@code M20 -5 L40 0 ...}. */
+    SVG_DATA {
+        @Override
+        void point(Line line, boolean move, double x, double y) {
+            line.append(move ? 'M' : 'L').decimal(x).append(' ').decimal(y);
+        }
+        @Override
+        String separator() {
+            return " ";
+        }
+    },
+    ;
+
+    //----------------------------------------------------------------------------------------------
+
+    /** Writes the path, the writer is not flushed nor closed. */
+    public void write(Shape path, Writer writer) throws IOException {
+        requireNonNull(path);
+        var line = new Line(writer, separator());
+        header(path, line);
+        line.end();
+        var coords = new double[6];
+        for (var iter = path.getPathIterator(null); !iter.isDone(); iter.next()) {
+            var type = iter.currentSegment(coords);
+            switch (type) {
+                case PathIterator.SEG_MOVETO -> point(line, true, coords[0], coords[1]);
+                case PathIterator.SEG_LINETO -> point(line, false, coords[0], coords[1]);
+                default -> throw new IOException("unhandled segment type: " + type);
+            }
+            line.end();
+        }
+        footer(line);
+        line.end();
+    }
+
+    /** Writes the path as UTF-8, the stream is flushed but not closed. */
+    public void write(Shape path, OutputStream output) throws IOException {
+        var writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        write(path, writer);
+        writer.flush();
+    }
+
+    /** Writes the path as UTF-8, the channel is not closed. */
+    public void write(Shape path, WritableByteChannel channel) throws IOException {
+        var writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8));
+        write(path, writer);
+        writer.flush();
+    }
+
+    void header(Shape path, Line line) {
+        //
+    }
+
+    abstract void point(Line line, boolean move, double x, double y);
+
+    void footer(Line line) {
+        //
+    }
+
+    /** @return the text written after each line, if not empty. */
+    String separator() {
+        return "\n";
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /** Reused buffer for one line, the numbers are formatted without allocation. */
+    static final class Line {
+
+        /** decimals written by {@link #decimal(double)}. */
+        private static final long SCALE = 1000;
+        /** larger values are written by the slower standard formatting. */
+        private static final double LIMIT = 1e15;
+
+        private final Writer writer;
+        private final String separator;
+        private char[] chars = new char[128];
+        private int length = 0;
+
+        private Line(Writer writer, String separator) {
+            this.writer = requireNonNull(writer);
+            this.separator = requireNonNull(separator);
+        }
+
+        /* writes the line with separator, if not empty */
+        private void end() throws IOException {
+            if (length > 0) {
+                append(separator);
+                writer.write(chars, 0, length);
+                length = 0;
+            }
+        }
+
+        Line append(char ch) {
+            if (length == chars.length) {
+                chars = Arrays.copyOf(chars, 2 * length);
+            }
+            chars[length++] = ch;
+            return this;
+        }
+
+        Line append(String text) {
+            for (var i = 0; i < text.length(); i++) {
+                append(text.charAt(i));
+            }
+            return this;
+        }
+
+        /** Rounded half up to an integer and right aligned to the width, as {@code %4.0f}. */
+        Line integer(double value, int width) {
+            var abs = Math.abs(value);
+            if (!(abs < LIMIT)) {
+                var text = String.format(Locale.ROOT, "%.0f", value);
+                return pad(text.length(), width).append(text);
+            }
+            var rounded = (long) Math.floor(abs);
+            if (abs - rounded >= 0.5) {
+                rounded += 1;
+            }
+            var negative = Double.doubleToRawLongBits(value) < 0;
+            var digits = digits(rounded);
+            pad(digits + (negative ? 1 : 0), width);
+            if (negative) {
+                append('-');
+            }
+            return digits(rounded, digits);
+        }
+
+        /** Rounded to three decimals, trailing zeros removed. */
+        Line decimal(double value) {
+            var scaled = Math.rint(value * SCALE);
+            if (!(Math.abs(scaled) < LIMIT))
+                return append(Double.toString(value));
+            var number = (long) scaled;
+            if (number < 0) {
+                append('-');
+                number = -number;
+            }
+            var integer = number / SCALE;
+            digits(integer, digits(integer));
+            var fraction = number % SCALE;
+            if (fraction != 0) {
+                append('.');
+                for (var unit = SCALE / 10; fraction != 0; unit /= 10) {
+                    append((char) ('0' + fraction / unit));
+                    fraction %= unit;
+                }
+            }
+            return this;
+        }
+
+        private Line pad(int used, int width) {
+            for (var i = used; i < width; i++) {
+                append(' ');
+            }
+            return this;
+        }
+
+        private static int digits(long value) {
+            var digits = 1;
+            while (value >= 10) {
+                value /= 10;
+                digits += 1;
+            }
+            return digits;
+        }
+
+        private Line digits(long value, int digits) {
+            for (var i = 0; i < digits; i++) {
+                append(' ');
+            }
+            for (var i = length - 1; i >= length - digits; i--) {
+                chars[i] = (char) ('0' + value % 10);
+                value /= 10;
+            }
+            return this;
+        }
+    }
+}
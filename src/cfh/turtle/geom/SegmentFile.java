@@ -0,0 +1,418 @@
+/*
+ * Copyright: Carlos F. Heuberger. All rights reserved.
+ *
+ */
+package cfh.turtle.geom;
+
+import static java.lang.Math.*;
+import static java.nio.file.StandardCopyOption.*;
+import static java.nio.file.StandardOpenOption.*;
+import static java.util.Objects.*;
+
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Binary drawing file, read only view of a memory-mapped file.
+ * <p>
+ * The file, little-endian, starts with a header of 64 bytes: magic {@code TRTL}, version (int),
+ * bytes per coordinate (int, {@code 4}), reserved (int), number of points (long), number of
+ * line segments (long), then the bounds as {@code minX, minY, maxX, maxY} (doubles). The points
+ * follow as {@code x, y} floats, then one bit per point, set for {@code moveTo}, in longs.
+ * <p>
+ * Opening only reads the header and maps the file, points are loaded by the operating system
+ * when accessed, so huge drawings open almost instantly. Like {@link SegmentStore} the file is a
+ * {@link Shape} made of {@code SEG_MOVETO} and {@code SEG_LINETO} without interior. The mapping
+ * is released when the view is garbage collected.
+ * <p>
+ * For drawing only a region, the bounds of each block of {@link #BLOCK_SIZE} points are indexed
+ * by {@link #blockIntersects}, each block when first tested, so opening stays fast.
+ *
+ * @author Carlos F. Heuberger, 2026-10-18
+ *
+ */
+public final class SegmentFile implements Shape {
+
+    public static final String EXTENSION = "trtl";
+
+    /** points per block of the bounds index. */
+    public static final int BLOCK_SIZE = 4096;
+
+    private static final int MAGIC = 'T' | 'R' << 8 | 'T' << 16 | 'L' << 24;
+    private static final int VERSION = 1;
+    private static final int HEADER = 64;
+    private static final int POINT_BYTES = 2 * Float.BYTES;
+
+    /** points per mapped region, a mapping is limited to 2 GB. */
+    private static final int REGION_BITS = 27;
+    private static final int REGION_MASK = (1 << REGION_BITS) - 1;
+
+    private static final int BUFFER = 1 << 16;
+
+    /**
+     * Writes the paths, each starting with a {@code moveTo}, into a new file.
+     * The paths are iterated twice and must not change meanwhile.
+     * <p>
+     * The data is written into a temporary file in the same directory, which then replaces the
+     * file; an existing file, possibly mapped by an open {@code SegmentFile}, is never truncated.
+     */
+    public static void write(Path file, List<? extends Shape> paths) throws IOException {
+        var target = file.toAbsolutePath();
+        var temp = Files.createTempFile(target.getParent(), target.getFileName() + ".", ".tmp");
+        try {
+            try (var channel = FileChannel.open(temp, WRITE)) {
+                write(channel, paths);
+            }
+            try {
+                Files.move(temp, target, REPLACE_EXISTING, ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(temp, target, REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void write(FileChannel channel, List<? extends Shape> paths) throws IOException {
+        long points = 0;
+        long segments = 0;
+        var minX = Double.POSITIVE_INFINITY;
+        var minY = Double.POSITIVE_INFINITY;
+        var maxX = Double.NEGATIVE_INFINITY;
+        var maxY = Double.NEGATIVE_INFINITY;
+        var coords = new double[6];
+        for (var path : paths) {
+            for (var iter = path.getPathIterator(null); !iter.isDone(); iter.next()) {
+                if (type(iter, coords) == PathIterator.SEG_LINETO) {
+                    segments += 1;
+                }
+                points += 1;
+                minX = Math.min(minX, coords[0]);
+                minY = Math.min(minY, coords[1]);
+                maxX = Math.max(maxX, coords[0]);
+                maxY = Math.max(maxY, coords[1]);
+            }
+        }
+        if (points > Integer.MAX_VALUE)
+            throw new IOException("too many points: " + points);
+
+        var header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(Float.BYTES).putInt(0);
+        header.putLong(points).putLong(segments);
+        if (points == 0) {
+            minX = minY = maxX = maxY = 0;
+        }
+        header.putDouble(minX).putDouble(minY).putDouble(maxX).putDouble(maxY);
+        write(channel, header.flip(), 0);
+
+        var buffer = ByteBuffer.allocateDirect(BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+        var bits = ByteBuffer.allocateDirect(BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+        long position = HEADER;
+        long bitsPosition = HEADER + points * POINT_BYTES;
+        long index = 0;
+        long word = 0;
+        for (var path : paths) {
+            var first = true;
+            for (var iter = path.getPathIterator(null); !iter.isDone(); iter.next()) {
+                var move = type(iter, coords) == PathIterator.SEG_MOVETO || first;
+                first = false;
+                if (!buffer.hasRemaining()) {
+                    position += write(channel, buffer.flip(), position);
+                    buffer.clear();
+                }
+                buffer.putFloat((float) coords[0]).putFloat((float) coords[1]);
+                if (move) {
+                    word |= 1L << index;
+                }
+                index += 1;
+                if ((index & 63) == 0) {
+                    if (!bits.hasRemaining()) {
+                        bitsPosition += write(channel, bits.flip(), bitsPosition);
+                        bits.clear();
+                    }
+                    bits.putLong(word);
+                    word = 0;
+                }
+            }
+        }
+        if ((index & 63) != 0) {
+            if (!bits.hasRemaining()) {
+                bitsPosition += write(channel, bits.flip(), bitsPosition);
+                bits.clear();
+            }
+            bits.putLong(word);
+        }
+        write(channel, buffer.flip(), position);
+        write(channel, bits.flip(), bitsPosition);
+    }
+
+    private static int type(PathIterator iter, double[] coords) throws IOException {
+        var type = iter.currentSegment(coords);
+        if (type != PathIterator.SEG_MOVETO && type != PathIterator.SEG_LINETO)
+            throw new IOException("unhandled segment type: " + type);
+        return type;
+    }
+
+    private static int write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        var written = 0;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer, position + written);
+        }
+        return written;
+    }
+
+    /** Maps the file, only the header is read. */
+    public static SegmentFile open(Path file) throws IOException {
+        try (var channel = FileChannel.open(file, READ)) {
+            var header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0)
+                    throw new IOException("missing header: " + file);
+            }
+            header.flip();
+            if (header.getInt() != MAGIC)
+                throw new IOException("not a drawing file: " + file);
+            var version = header.getInt();
+            if (version != VERSION)
+                throw new IOException("unsupported version " + version + ": " + file);
+            var coordinate = header.getInt();
+            if (coordinate != Float.BYTES)
+                throw new IOException("unsupported coordinate size " + coordinate + ": " + file);
+            header.getInt();
+            var points = header.getLong();
+            var segments = header.getLong();
+            if (points < 0 || points > Integer.MAX_VALUE)
+                throw new IOException("invalid number of points " + points + ": " + file);
+            var bitsPosition = HEADER + points * POINT_BYTES;
+            var bitsSize = (points + 63) / 64 * Long.BYTES;
+            if (channel.size() < bitsPosition + bitsSize)
+                throw new IOException("truncated file: " + file);
+
+            var regions = new MappedByteBuffer[(int) ((points + REGION_MASK) >>> REGION_BITS)];
+            for (var i = 0; i < regions.length; i++) {
+                var first = (long) i << REGION_BITS;
+                var count = Math.min(points - first, 1L << REGION_BITS);
+                regions[i] = map(channel, HEADER + first * POINT_BYTES, count * POINT_BYTES);
+            }
+            var moves = map(channel, bitsPosition, bitsSize);
+            var bounds = new Rectangle2D.Double(header.getDouble(), header.getDouble(), 0, 0);
+            bounds.add(header.getDouble(), header.getDouble());
+            return new SegmentFile((int) points, segments, bounds, regions, moves);
+        }
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+        var buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    //----------------------------------------------------------------------------------------------
+
+    private final int size;
+    private final long segments;
+    private final Rectangle2D bounds;
+    private final MappedByteBuffer[] regions;
+    private final MappedByteBuffer moves;
+    /** {@code minX, minY, maxX, maxY} of each block, {@code NaN} until indexed; guarded by this. */
+    private final float[] blocks;
+
+    private SegmentFile(int size, long segments, Rectangle2D bounds, MappedByteBuffer[] regions, MappedByteBuffer moves) {
+        this.size = size;
+        this.segments = segments;
+        this.bounds = requireNonNull(bounds);
+        this.regions = requireNonNull(regions);
+        this.moves = requireNonNull(moves);
+        this.blocks = new float[4 * blocks()];
+        Arrays.fill(this.blocks, Float.NaN);
+    }
+
+    /** @return number of points. */
+    public int size() { return size; }
+
+    /** @return number of line segments. */
+    public long segments() { return segments; }
+
+    public double x(int index) {
+        checkIndex(index, size);
+        return regions[index >>> REGION_BITS].getFloat((index & REGION_MASK) * POINT_BYTES);
+    }
+
+    public double y(int index) {
+        checkIndex(index, size);
+        return regions[index >>> REGION_BITS].getFloat((index & REGION_MASK) * POINT_BYTES + Float.BYTES);
+    }
+
+    /** @return if the point starts a new sub-path. */
+    public boolean isMove(int index) {
+        checkIndex(index, size);
+        return (moves.getLong((index >>> 6) * Long.BYTES) & (1L << index)) != 0;
+    }
+
+    /** @return a path iterator over the points {@code from} (as {@code SEG_MOVETO}) up to, excluding, {@code to}. */
+    public PathIterator getPathIterator(int from, int to, AffineTransform at) {
+        if (from < 0 || to > size || from > to)
+            throw new IndexOutOfBoundsException("range " + from + ".." + to + " of " + size);
+        return new Iterator(from, to, at);
+    }
+
+    /** @return number of blocks of {@link #BLOCK_SIZE} points. */
+    public int blocks() {
+        return (size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    }
+
+    /**
+     * @return if segments ending at points of the block may intersect the rectangle; the bounds
+     *         of the block, including the point before it, are computed when first needed
+     */
+    public synchronized boolean blockIntersects(int block, double minX, double minY, double maxX, double maxY) {
+        checkIndex(block, blocks());
+        var i = 4 * block;
+        if (Float.isNaN(blocks[i])) {
+            index(block);
+        }
+        return blocks[i+2] >= minX && blocks[i] <= maxX && blocks[i+3] >= minY && blocks[i+1] <= maxY;
+    }
+
+    private void index(int block) {
+        var from = max(0, block * BLOCK_SIZE - 1);
+        var to = min(size, (block + 1) * BLOCK_SIZE);
+        var minX = Float.POSITIVE_INFINITY;
+        var minY = Float.POSITIVE_INFINITY;
+        var maxX = Float.NEGATIVE_INFINITY;
+        var maxY = Float.NEGATIVE_INFINITY;
+        for (var i = from; i < to; i++) {
+            var x = (float) x(i);
+            var y = (float) y(i);
+            minX = min(minX, x);
+            minY = min(minY, y);
+            maxX = max(maxX, x);
+            maxY = max(maxY, y);
+        }
+        var i = 4 * block;
+        blocks[i] = minX;
+        blocks[i+1] = minY;
+        blocks[i+2] = maxX;
+        blocks[i+3] = maxY;
+    }
+
+    //----------------------------------------------------------------------------------------------
+
+    @Override
+    public Rectangle getBounds() {
+        return bounds.getBounds();
+    }
+
+    @Override
+    public Rectangle2D getBounds2D() {
+        return (Rectangle2D) bounds.clone();
+    }
+
+    @Override
+    public boolean contains(double x, double y) { return false; }
+
+    @Override
+    public boolean contains(Point2D p) { return false; }
+
+    @Override
+    public boolean contains(double x, double y, double w, double h) { return false; }
+
+    @Override
+    public boolean contains(Rectangle2D r) { return false; }
+
+    @Override
+    public boolean intersects(double x, double y, double w, double h) {
+        if (size == 0 || !bounds.intersects(x, y, w, h))
+            return false;
+        var rect = new Rectangle2D.Double(x, y, w, h);
+        for (var i = 1; i < size; i++) {
+            if (!isMove(i) && rect.intersectsLine(x(i-1), y(i-1), x(i), y(i)))
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean intersects(Rectangle2D r) {
+        return intersects(r.getX(), r.getY(), r.getWidth(), r.getHeight());
+    }
+
+    @Override
+    public PathIterator getPathIterator(AffineTransform at) {
+        return new Iterator(0, size, at);
+    }
+
+    @Override
+    public PathIterator getPathIterator(AffineTransform at, double flatness) {
+        return getPathIterator(at);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+
+    private class Iterator implements PathIterator {
+
+        private final int from;
+        private final int to;
+        private final AffineTransform transform;
+        private int index;
+
+        Iterator(int from, int to, AffineTransform transform) {
+            this.from = from;
+            this.to = to;
+            this.transform = transform == null || transform.isIdentity() ? null : transform;
+            this.index = from;
+        }
+
+        @Override
+        public int getWindingRule() { return WIND_NON_ZERO; }
+
+        @Override
+        public boolean isDone() { return index >= to; }
+
+        @Override
+        public void next() { index += 1; }
+
+        @Override
+        public int currentSegment(float[] coords) {
+            var type = type();
+            coords[0] = (float) x(index);
+            coords[1] = (float) y(index);
+            if (transform != null) {
+                transform.transform(coords, 0, coords, 0, 1);
+            }
+            return type;
+        }
+
+        @Override
+        public int currentSegment(double[] coords) {
+            var type = type();
+            coords[0] = x(index);
+            coords[1] = y(index);
+            if (transform != null) {
+                transform.transform(coords, 0, coords, 0, 1);
+            }
+            return type;
+        }
+
+        private int type() {
+            if (isDone())
+                throw new NoSuchElementException("segment " + index);
+            return (index == from || isMove(index)) ? SEG_MOVETO : SEG_LINETO;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright: Carlos F. Heuberger. All rights reserved.
+ *
+ */
+package cfh.turtle.geom;
+
+import static java.lang.Math.*;
+import static java.util.Objects.*;
+
+import java.awt.geom.Line2D;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Uniform grid index over the line segments of a {@link SegmentStore}.
+ * <p>
+ * Segment {@code i} is the line from point {@code i-1} to point {@code i} of the store, for
+ * each point which is not a {@code moveTo}. Every segment is registered in all grid cells it
+ * passes through; only cells containing segments are allocated, so the drawing can grow in any
+ * direction. Queries are conservative: they return all segments registered in the cells touched
+ * by the query rectangle, which may include some segments just outside of it.
+ * <p>
+ * The grid does not follow the store automatically, {@link #update()} must be called after points
+ * were added and {@link #reset()} after the store was reset. One thread may update the grid while
+ * others query it without locking: the cells are kept in a concurrent map and each cell publishes
+ * its segments like the store publishes its points, by a volatile count written after the segment.
+ *
+ * @author Carlos F. Heuberger, 2026-10-18
+ *
+ */
+public final class SegmentGrid {
+
+    /** approximate bytes per cell besides its segments: map entry, key, cell and array header. */
+    private static final int CELL_BYTES = 96;
+
+    private final SegmentStore store;
+    private final double cellSize;
+
+    private final Map<Long, Cell> cells = new ConcurrentHashMap<>();
+    /** number of points of the store already indexed. */
+    private volatile int indexed = 0;
+    /** allocated length of the segment arrays of all cells, only written by the updating thread. */
+    private volatile long capacity = 0;
+
+    // last used cell, consecutive segments are mostly in the same cell
+    private long lastKey;
+    private Cell lastCell = null;
+
+    public SegmentGrid(SegmentStore store, double cellSize) {
+        this.store = requireNonNull(store);
+        if (!(cellSize > 0))
+            throw new IllegalArgumentException("invalid cell size: " + cellSize);
+        this.cellSize = cellSize;
+    }
+
+    public SegmentStore store() { return store; }
+    public double cellSize() { return cellSize; }
+
+    /** @return number of points of the store already indexed, all segments before are registered. */
+    public int indexed() { return indexed; }
+
+    /** @return number of allocated cells. */
+    public int cells() { return cells.size(); }
+
+    /** @return approximate number of bytes allocated for the cells. */
+    public long memoryBytes() {
+        return (long) cells.size() * CELL_BYTES + capacity * Integer.BYTES;
+    }
+
+    /** Removes all segments, must be called after the store was reset. */
+    public void reset() {
+        cells.clear();
+        lastCell = null;
+        indexed = 0;
+        capacity = 0;
+    }
+
+    /**
+     * Registers the segments added to the store since the last update.
+     * @return the number of new segments
+     */
+    public int update() {
+        var end = store.size();
+        if (end < indexed) {
+            reset();
+        }
+        var count = 0;
+        for (var i = max(1, indexed); i < end; i++) {
+            if (!store.isMove(i)) {
+                add(i, store.x(i-1), store.y(i-1), store.x(i), store.y(i));
+                count += 1;
+            }
+        }
+        indexed = end;
+        return count;
+    }
+
+    /*
+     * Splits the segment into pieces not longer than a cell, so each piece touches at most
+     * 2x2 cells and long diagonals are not registered in their whole bounding box.
+     */
+    private void add(int segment, double x0, double y0, double x1, double y1) {
+        var length = max(abs(x1 - x0), abs(y1 - y0));
+        var pieces = max(1, (int) ceil(length / cellSize));
+        var dx = (x1 - x0) / pieces;
+        var dy = (y1 - y0) / pieces;
+        for (var p = 0; p < pieces; p++) {
+            var ax = x0 + p * dx;
+            var ay = y0 + p * dy;
+            var bx = p == pieces-1 ? x1 : ax + dx;
+            var by = p == pieces-1 ? y1 : ay + dy;
+            var cx1 = cell(max(ax, bx));
+            var cy1 = cell(max(ay, by));
+            for (var cx = cell(min(ax, bx)); cx <= cx1; cx++) {
+                for (var cy = cell(min(ay, by)); cy <= cy1; cy++) {
+                    insert(cx, cy, segment);
+                }
+            }
+        }
+    }
+
+    private void insert(int cx, int cy, int segment) {
+        var key = key(cx, cy);
+        var cell = lastCell;
+        if (cell == null || lastKey != key) {
+            cell = cells.computeIfAbsent(key, k -> new Cell());
+            lastKey = key;
+            lastCell = cell;
+        }
+        var grown = cell.add(segment);
+        if (grown > 0) {
+            capacity += grown;
+        }
+    }
+
+    /**
+     * Sets the bit of every segment registered in a cell intersecting the given rectangle.
+     * Since the bit set is ordered, consecutive segments can be drawn as one polyline.
+     */
+    public void query(double x, double y, double w, double h, BitSet result) {
+        requireNonNull(result);
+        if (cells.isEmpty())
+            return;
+        var cx0 = cell(x);
+        var cy0 = cell(y);
+        var cx1 = cell(x + w);
+        var cy1 = cell(y + h);
+        var span = ((long) cx1 - cx0 + 1) * ((long) cy1 - cy0 + 1);
+        if (span > cells.size()) {
+            for (var entry : cells.entrySet()) {
+                long key = entry.getKey();
+                var cx = (int) (key >> 32);
+                var cy = (int) key;
+                if (cx0 <= cx && cx <= cx1 && cy0 <= cy && cy <= cy1) {
+                    entry.getValue().collect(result);
+                }
+            }
+        } else {
+            for (var cx = cx0; cx <= cx1; cx++) {
+                for (var cy = cy0; cy <= cy1; cy++) {
+                    var cell = cells.get(key(cx, cy));
+                    if (cell != null) {
+                        cell.collect(result);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the segment nearest to the given point not farther than {@code maxDistance},
+     *         or {@code -1} if there is none
+     */
+    public int nearest(double x, double y, double maxDistance) {
+        var candidates = new BitSet();
+        query(x - maxDistance, y - maxDistance, 2 * maxDistance, 2 * maxDistance, candidates);
+        var best = -1;
+        var bestDistance = maxDistance * maxDistance;
+        var end = min(indexed, store.size());
+        for (var i = candidates.nextSetBit(1); i >= 0 && i < end; i = candidates.nextSetBit(i+1)) {
+            var distance = Line2D.ptSegDistSq(store.x(i-1), store.y(i-1), store.x(i), store.y(i), x, y);
+            if (distance <= bestDistance) {
+                best = i;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    private int cell(double coord) {
+        return (int) floor(coord / cellSize);
+    }
+
+    private static long key(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xFFFF_FFFFL);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+
+    private static class Cell {
+
+        // replaced before the count is published, readers must read the count first
+        private volatile int[] segments = {};
+        private volatile int count = 0;
+
+        /** @return the number of array elements allocated for the segment. */
+        int add(int segment) {
+            // segments are added in increasing order, a split segment may hit the same cell again
+            var n = count;
+            var array = segments;
+            if (n > 0 && array[n-1] == segment)
+                return 0;
+            var grown = 0;
+            if (n == array.length) {
+                grown = max(8, n);
+                array = Arrays.copyOf(array, n + grown);
+                segments = array;
+            }
+            array[n] = segment;
+            count = n + 1;
+            return grown;
+        }
+
+        void collect(BitSet result) {
+            var n = count;
+            var array = segments;
+            for (var i = 0; i < n; i++) {
+                result.set(array[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright: Carlos F. Heuberger. All rights reserved.
+ *
+ */
+package cfh.turtle.geom;
+
+import static java.lang.Math.*;
+import static java.util.Objects.*;
+
+/**
+ * Simplified versions of a {@link SegmentStore} for drawing at reduced scales (level of detail).
+ * <p>
+ * Level {@code 0} is the store itself. At level {@code k} every point is snapped to a grid of
+ * {@code 2^k} units and points falling onto the same grid position as their predecessor are
+ * dropped. Drawn with a scale of {@code 1/2^k} pixels per unit or less, the error is at most
+ * half a pixel, but the number of points is only proportional to the length of the drawing
+ * in pixels, no matter how many segments were collapsed.
+ * <p>
+ * Levels are updated incrementally by {@link #update()}, which must be called by the thread
+ * reading the levels; the store itself may be appended by another thread.
+ *
+ * @author Carlos F. Heuberger, 2026-10-18
+ *
+ */
+public final class SegmentLevels {
+
+    private final SegmentStore store;
+    private final SegmentStore[] levels;
+
+    /** number of points of the store already processed. */
+    private int processed = 0;
+
+    public SegmentLevels(SegmentStore store, int levels) {
+        this.store = requireNonNull(store);
+        if (levels < 1 || levels > 30)
+            throw new IllegalArgumentException("invalid number of levels: " + levels);
+        this.levels = new SegmentStore[levels + 1];
+        this.levels[0] = store;
+        for (var k = 1; k <= levels; k++) {
+            this.levels[k] = new SegmentStore(store.precision());
+        }
+    }
+
+    public SegmentStore store() { return store; }
+
+    /** @return the number of simplified levels, not counting level {@code 0}. */
+    public int levels() { return levels.length - 1; }
+
+    /** @return the given level, {@code 0} being the store itself. */
+    public SegmentStore level(int k) {
+        return levels[k];
+    }
+
+    /** @return grid size of the given level in units. */
+    public static double tolerance(int k) {
+        return k == 0 ? 0 : 1 << k;
+    }
+
+    /** @return the coarsest level whose error is below one pixel when drawn with the given scale. */
+    public int levelFor(double scale) {
+        if (!(scale > 0))
+            throw new IllegalArgumentException("invalid scale: " + scale);
+        var k = (int) floor(-log(scale) / log(2));
+        return max(0, min(k, levels()));
+    }
+
+    /** @return the level to draw with the given scale (pixels per unit). */
+    public SegmentStore forScale(double scale) {
+        return levels[levelFor(scale)];
+    }
+
+    /** Clears all levels, they are rebuilt by the next update. */
+    public void reset() {
+        for (var k = 1; k < levels.length; k++) {
+            levels[k].reset();
+        }
+        processed = 0;
+    }
+
+    /**
+     * Adds the points appended to the store since the last update to all levels.
+     * A reset of the store is detected if it got smaller.
+     * @return the number of points processed
+     */
+    public int update() {
+        var end = store.size();
+        if (end < processed) {
+            reset();
+        }
+        var start = processed;
+        // the store replaces a trailing move, so process it again
+        if (start > 0 && start <= end && store.isMove(start - 1)) {
+            start -= 1;
+        }
+        for (var i = start; i < end; i++) {
+            var x = store.x(i);
+            var y = store.y(i);
+            var move = store.isMove(i);
+            for (var k = 1; k < levels.length; k++) {
+                var level = levels[k];
+                var grid = tolerance(k);
+                var sx = rint(x / grid) * grid;
+                var sy = rint(y / grid) * grid;
+                if (move) {
+                    level.moveTo(sx, sy);
+                } else {
+                    var last = level.size() - 1;
+                    if (last < 0 || level.x(last) != sx || level.y(last) != sy) {
+                        level.lineTo(sx, sy);
+                    }
+                }
+            }
+        }
+        processed = end;
+        return end - start;
+    }
+}
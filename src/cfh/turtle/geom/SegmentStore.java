@@ -0,0 +1,321 @@
+/*
+ * Copyright: Carlos F. Heuberger. All rights reserved.
+ *
+ */
+package cfh.turtle.geom;
+
+import static java.util.Objects.*;
+
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Line2D;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Compact store of a polyline drawing, replacing {@link java.awt.geom.Path2D}.
+ * <p>
+ * Points are appended in fixed size chunks of primitive arrays, so growing never copies
+ * coordinates, only the small array of chunk references. Each point is either the start of 
+ * a new sub-path ({@code moveTo}) or the end of a line segment from the previous point 
+ * ({@code lineTo}), kept in one bit per point. With {@link Precision#FLOAT} a point takes
+ * 8 bytes plus one bit, compared to 17 bytes and more with {@code Path2D.Double}.
+ * <p>
+ * The store is a {@link Shape}, its {@link PathIterator} returns only {@code SEG_MOVETO} and 
+ * {@code SEG_LINETO}, so it can be drawn by {@link java.awt.Graphics2D#draw(Shape)}. 
+ * Like {@link Line2D} it has no interior: {@code contains} always returns {@code false}.
+ * <p>
+ * One thread may append while other threads read: the size is published after the point 
+ * is written, readers see all points up to the size they read.
+ * 
+ * @author Carlos F. Heuberger, 2026-10-18
+ *
+ */
+public final class SegmentStore implements Shape {
+
+    public enum Precision { FLOAT, DOUBLE }
+    
+    private static final int CHUNK_BITS = 14;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    
+    private final Precision precision;
+    
+    // x and y interleaved, one of float or double is used
+    private float[][] floats;
+    private double[][] doubles;
+    /** one bit per point, set for moveTo. */
+    private long[][] moves;
+    
+    private volatile int size = 0;
+    /** number of allocated chunks, kept on reset. */
+    private int chunks = 0;
+    private long segments = 0;
+    
+    private double minX;
+    private double minY;
+    private double maxX;
+    private double maxY;
+    
+    public SegmentStore() {
+        this(Precision.DOUBLE);
+    }
+    
+    public SegmentStore(Precision precision) {
+        this.precision = requireNonNull(precision);
+        floats = precision == Precision.FLOAT ? new float[4][] : null;
+        doubles = precision == Precision.DOUBLE ? new double[4][] : null;
+        moves = new long[4][];
+        reset();
+    }
+    
+    public Precision precision() { return precision; }
+    
+    /** 
+     * Removes all points. The allocated chunks are kept for reuse, so readers still iterating 
+     * over old points do not fail.
+     */
+    public void reset() {
+        segments = 0;
+        minX = minY = Double.POSITIVE_INFINITY;
+        maxX = maxY = Double.NEGATIVE_INFINITY;
+        size = 0;
+    }
+    
+    /** Starts a new sub-path, replaces the last point if it also was a {@code moveTo}. */
+    public void moveTo(double x, double y) {
+        var index = size;
+        if (index > 0 && isMove(index - 1)) {
+            set(index - 1, x, y);
+        } else {
+            append(x, y, true);
+        }
+    }
+    
+    /** Adds a line segment from the last point, or starts at {@code (0,0)} if empty. */
+    public void lineTo(double x, double y) {
+        if (size == 0) {
+            append(0, 0, true);
+        }
+        append(x, y, false);
+        segments += 1;
+    }
+    
+    private void append(double x, double y, boolean move) {
+        var index = size;
+        if (index == Integer.MAX_VALUE)
+            throw new IllegalStateException("store full");
+        var chunk = index >>> CHUNK_BITS;
+        if (chunk == chunks) {
+            addChunk();
+        }
+        set(index, x, y);
+        var bits = moves[chunk];
+        var offset = index & CHUNK_MASK;
+        if (move) {
+            bits[offset >>> 6] |= 1L << offset;
+        } else {
+            bits[offset >>> 6] &= ~(1L << offset);
+        }
+        size = index + 1;
+    }
+    
+    private void set(int index, double x, double y) {
+        var chunk = index >>> CHUNK_BITS;
+        var offset = 2 * (index & CHUNK_MASK);
+        if (floats != null) {
+            floats[chunk][offset] = (float) x;
+            floats[chunk][offset+1] = (float) y;
+        } else {
+            doubles[chunk][offset] = x;
+            doubles[chunk][offset+1] = y;
+        }
+        minX = Math.min(minX, x);
+        minY = Math.min(minY, y);
+        maxX = Math.max(maxX, x);
+        maxY = Math.max(maxY, y);
+    }
+    
+    private void addChunk() {
+        if (chunks == moves.length) {
+            moves = Arrays.copyOf(moves, 2 * chunks);
+            if (floats != null) {
+                floats = Arrays.copyOf(floats, 2 * chunks);
+            } else {
+                doubles = Arrays.copyOf(doubles, 2 * chunks);
+            }
+        }
+        if (floats != null) {
+            floats[chunks] = new float[2 * CHUNK_SIZE];
+        } else {
+            doubles[chunks] = new double[2 * CHUNK_SIZE];
+        }
+        moves[chunks] = new long[CHUNK_SIZE / 64];
+        chunks += 1;
+    }
+    
+    /** @return number of points. */
+    public int size() { return size; }
+    
+    public boolean isEmpty() { return size == 0; }
+    
+    /** @return number of line segments. */
+    public long segments() { return segments; }
+    
+    public double x(int index) {
+        checkIndex(index, size);
+        var chunk = index >>> CHUNK_BITS;
+        var offset = 2 * (index & CHUNK_MASK);
+        return floats != null ? floats[chunk][offset] : doubles[chunk][offset];
+    }
+    
+    public double y(int index) {
+        checkIndex(index, size);
+        var chunk = index >>> CHUNK_BITS;
+        var offset = 2 * (index & CHUNK_MASK) + 1;
+        return floats != null ? floats[chunk][offset] : doubles[chunk][offset];
+    }
+    
+    /** @return if the point starts a new sub-path. */
+    public boolean isMove(int index) {
+        checkIndex(index, size);
+        var offset = index & CHUNK_MASK;
+        return (moves[index >>> CHUNK_BITS][offset >>> 6] & (1L << offset)) != 0;
+    }
+    
+    /** @return the last point or {@code null} if empty. */
+    public Point2D currentPoint() {
+        var last = size - 1;
+        return last < 0 ? null : new Point2D.Double(x(last), y(last));
+    }
+    
+    /** @return approximate number of bytes allocated for the points. */
+    public long memoryBytes() {
+        var coords = (long) chunks * 2 * CHUNK_SIZE * (floats != null ? Float.BYTES : Double.BYTES);
+        return coords + (long) chunks * CHUNK_SIZE / 8;
+    }
+    
+    /** @return a path iterator starting at the given point, which is always returned as {@code SEG_MOVETO}. */
+    public PathIterator getPathIterator(int from, AffineTransform at) {
+        return new Iterator(from, size, at);
+    }
+    
+    /** @return a path iterator over the points {@code from} (as {@code SEG_MOVETO}) up to, excluding, {@code to}. */
+    public PathIterator getPathIterator(int from, int to, AffineTransform at) {
+        if (from < 0 || to > size || from > to)
+            throw new IndexOutOfBoundsException("range " + from + ".." + to + " of " + size);
+        return new Iterator(from, to, at);
+    }
+    
+    //----------------------------------------------------------------------------------------------
+    
+    @Override
+    public Rectangle getBounds() {
+        return getBounds2D().getBounds();
+    }
+    
+    @Override
+    public Rectangle2D getBounds2D() {
+        if (size == 0)
+            return new Rectangle2D.Double();
+        return new Rectangle2D.Double(minX, minY, maxX - minX, maxY - minY);
+    }
+    
+    @Override
+    public boolean contains(double x, double y) { return false; }
+    
+    @Override
+    public boolean contains(Point2D p) { return false; }
+    
+    @Override
+    public boolean contains(double x, double y, double w, double h) { return false; }
+    
+    @Override
+    public boolean contains(Rectangle2D r) { return false; }
+    
+    @Override
+    public boolean intersects(double x, double y, double w, double h) {
+        var count = size;
+        if (count == 0 || !getBounds2D().intersects(x, y, w, h))
+            return false;
+        var rect = new Rectangle2D.Double(x, y, w, h);
+        for (var i = 1; i < count; i++) {
+            if (!isMove(i) && rect.intersectsLine(x(i-1), y(i-1), x(i), y(i)))
+                return true;
+        }
+        return false;
+    }
+    
+    @Override
+    public boolean intersects(Rectangle2D r) {
+        return intersects(r.getX(), r.getY(), r.getWidth(), r.getHeight());
+    }
+    
+    @Override
+    public PathIterator getPathIterator(AffineTransform at) {
+        return new Iterator(0, size, at);
+    }
+    
+    @Override
+    public PathIterator getPathIterator(AffineTransform at, double flatness) {
+        return getPathIterator(at);
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+    
+    private class Iterator implements PathIterator {
+        
+        private final int from;
+        private final int to;
+        private final AffineTransform transform;
+        private int index;
+        
+        Iterator(int from, int to, AffineTransform transform) {
+            this.from = from;
+            this.to = to;
+            this.transform = transform == null || transform.isIdentity() ? null : transform;
+            this.index = from;
+        }
+        
+        @Override
+        public int getWindingRule() { return WIND_NON_ZERO; }
+        
+        @Override
+        public boolean isDone() { return index >= to; }
+        
+        @Override
+        public void next() { index += 1; }
+        
+        @Override
+        public int currentSegment(float[] coords) {
+            var type = type();
+            coords[0] = (float) x(index);
+            coords[1] = (float) y(index);
+            if (transform != null) {
+                transform.transform(coords, 0, coords, 0, 1);
+            }
+            return type;
+        }
+        
+        @Override
+        public int currentSegment(double[] coords) {
+            var type = type();
+            coords[0] = x(index);
+            coords[1] = y(index);
+            if (transform != null) {
+                transform.transform(coords, 0, coords, 0, 1);
+            }
+            return type;
+        }
+        
+        private int type() {
+            if (isDone())
+                throw new NoSuchElementException("segment " + index);
+            return (index == from || isMove(index)) ? SEG_MOVETO : SEG_LINETO;
+        }
+    }
+}
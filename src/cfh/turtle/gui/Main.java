@@ -5,24 +5,59 @@
 package cfh.turtle.gui;
 
 import java.awt.BorderLayout;
+import java.awt.GraphicsEnvironment;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 import javax.swing.JFrame;
 import javax.swing.SwingUtilities;
 
 /**
+ * Starts the GUI. Options, used by the packaging ({@code package.sh}):
+ * <dl>
+ * <dt>{@code -startup}</dt><dd>prints the time since the JVM started when the turtle is first painted</dd>
+ * <dt>{@code -train SCRIPT}</dt><dd>runs the script and quits, as training run for the class data archive</dd>
+ * </dl>
+ * 
  * @author Carlos F. Heuberger, 2022-09-13
  *
  */
 public class Main {
 
     public static void main(String... args) {
-        SwingUtilities.invokeLater(new Main(args)::initGUI);
+        Main main;
+        try {
+            main = new Main(args);
+        } catch (IllegalArgumentException | IOException ex) {
+            System.err.println(ex.getMessage());
+            System.err.println("usage: Main [-startup] [-train SCRIPT]");
+            System.exit(1);
+            return;
+        }
+        SwingUtilities.invokeLater(main::initGUI);
     }
 
-    private Main(String... args) {
-        //
+    private boolean startup = false;
+    private String training = null;
+    
+    private Main(String... args) throws IOException {
+        for (var i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-startup" -> startup = true;
+                case "-train" -> {
+                    if (++i == args.length)
+                        throw new IllegalArgumentException("missing script for -train");
+                    training = Files.readString(Path.of(args[i]));
+                }
+                default -> throw new IllegalArgumentException("unknown option: " + args[i]);
+            }
+        }
+        if (GraphicsEnvironment.isHeadless())
+            throw new IllegalArgumentException("no display available");
     }
     
     private void initGUI() {
@@ -41,6 +76,16 @@ public class Main {
         frame.add(panel, BorderLayout.CENTER);
         frame.pack();
         frame.setLocationRelativeTo(null);
+        if (startup) {
+            panel.whenPainted(() -> System.out.printf("startup: first frame after %d ms%n", 
+                ManagementFactory.getRuntimeMXBean().getUptime()));
+        }
         frame.setVisible(true);
+        if (training != null) {
+            panel.train(training, () -> {
+                frame.dispose();
+                System.exit(0);
+            });
+        }
     }
 }
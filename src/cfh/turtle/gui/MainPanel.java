@@ -4,6 +4,7 @@
  */
 package cfh.turtle.gui;
 
+import static java.lang.Math.*;
 import static javax.swing.JOptionPane.*;
 
 import java.awt.BorderLayout;
@@ -13,7 +14,6 @@ import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.beans.PropertyChangeEvent;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
@@ -22,7 +22,9 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Formatter;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.prefs.Preferences;
 import java.util.stream.Collectors;
@@ -39,15 +41,21 @@ import javax.swing.JScrollPane;
 import javax.swing.JSeparator;
 import javax.swing.JTextArea;
 import javax.swing.JTextField;
+import javax.swing.JToggleButton;
 import javax.swing.KeyStroke;
 import javax.swing.SwingUtilities;
 import javax.swing.SwingWorker;
+import javax.swing.Timer;
 import javax.swing.border.Border;
 import javax.swing.border.EmptyBorder;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.text.BadLocationException;
 
+import cfh.turtle.geom.SegmentFile;
+import cfh.turtle.script.Control;
+
 /**
  * @author Carlos F. Heuberger, 2022-09-13
  *
@@ -57,15 +65,35 @@ public class MainPanel extends JPanel {
 
     private static final Border EMPTY_BORDER = new EmptyBorder(4, 4, 4, 4);
     private static final Font FONT = new Font("monospaced", Font.PLAIN, 12);
+    private static final int STATS_MILLIS = 500;
     
     private final JTextArea script;
     private final TurtlePanel turtle;
     private final JTextField turtleStatus;
+    private final StringBuilder status = new StringBuilder();
+    private final Formatter statusFormatter = new Formatter(status);
+    
+    /** performance statistics, sampled by a timer while shown. */
+    private final JTextField statsStatus;
+    private final StringBuilder stats = new StringBuilder();
+    private final Formatter statsFormatter = new Formatter(stats);
+    private final Timer statsTimer = new Timer(STATS_MILLIS, this::sampleStats);
+    /** last started script, kept after it ended for its statistics. */
+    private RunWorker lastRun = null;
+    private long sampled;
+    private RunWorker sampledRun = null;
+    private long sampledExecuted;
+    private long sampledPaints;
     
     private final List<Object> actions = new ArrayList<>();
+    /** actions only enabled while running. */
+    private final List<Action> controls = new ArrayList<>();
+    private final Action pause;
+    private RunWorker worker = null;
     
     private static final String PREF_SCRIPT = "script.text";
     private static final String PREF_FILE = "script.file";
+    private static final String PREF_DRAWING = "drawing.file";
     private final Preferences preferences = Preferences.userNodeForPackage(getClass());
     
     private boolean changed = false;
@@ -77,6 +105,9 @@ public class MainPanel extends JPanel {
         
         var run = newMenuItem("Run", this::doRun);
         
+        var loadDrawing = newMenuItem("Load drawing ...", this::doLoadDrawing);
+        var saveDrawing = newMenuItem("Save drawing ...", this::doSaveDrawing);
+        
         var quit = newMenuItem("Quit", this::doQuit);
         
         var scriptMenu = newMenu("Script");
@@ -86,16 +117,31 @@ public class MainPanel extends JPanel {
         scriptMenu.addSeparator();
         scriptMenu.add(run);
         scriptMenu.addSeparator();
+        scriptMenu.add(loadDrawing);
+        scriptMenu.add(saveDrawing);
+        scriptMenu.addSeparator();
         scriptMenu.add(quit);
         
         var refresh = newButton("Refresh", this::doRefresh);
+        var skip = newButton("Skip", this::doSkip);
+        var showStats = new JToggleButton("Stats");
+        showStats.setFocusable(false);
+        showStats.addActionListener(ev -> doStats(showStats.isSelected()));
+        var stop = newControl("Stop", this::doStop);
+        pause = newControl("Pause", this::doPause);
+        var step = newControl("Step", this::doStep);
         
         var bar = new JMenuBar();
         bar.add(scriptMenu);
         bar.add(new JSeparator());
         bar.add(newButton(run.getAction()));
+        bar.add(newButton(stop));
+        bar.add(newButton(pause));
+        bar.add(newButton(step));
+        bar.add(skip);
         bar.add(new JSeparator());
         bar.add(refresh);
+        bar.add(showStats);
         
         script = newTextArea(40, 40);
         script.setText(preferences.get(PREF_SCRIPT, ""));
@@ -111,16 +157,23 @@ public class MainPanel extends JPanel {
         turtle = new TurtlePanel();
         turtle.setForeground(Color.BLACK);
         turtle.setPreferredSize(new Dimension(1000, 800));
-        turtle.addPropertyChangeListener(this::turtleChanged);
+        turtle.addListener(this::turtleChanged);
         
         turtleStatus = newTextField("");
         turtleStatus.setEditable(false);
+        statsStatus = newTextField("");
+        statsStatus.setEditable(false);
+        statsStatus.setVisible(false);
+        
+        var statusBar = new JPanel(new BorderLayout());
+        statusBar.add(turtleStatus, BorderLayout.CENTER);
+        statusBar.add(statsStatus, BorderLayout.LINE_END);
         
         setLayout(new BorderLayout());
         add(bar, BorderLayout.PAGE_START);
         add(newScrollPane(script), BorderLayout.LINE_START);
         add(newScrollPane(turtle), BorderLayout.CENTER);
-        add(turtleStatus, BorderLayout.PAGE_END);
+        add(statusBar, BorderLayout.PAGE_END);
         
         enabled(true);
     }
@@ -137,6 +190,10 @@ public class MainPanel extends JPanel {
                 comp.setEnabled(enabled);
             }
         }
+        for (var action : controls) {
+            action.setEnabled(!enabled);
+        }
+        pause.putValue(Action.NAME, "Pause");
     }
     
     private void doNew(ActionEvent ev) {
@@ -194,20 +251,116 @@ public class MainPanel extends JPanel {
         }
     }
     
+    private void doLoadDrawing(ActionEvent ev) {
+        var chooser = newDrawingChooser();
+        if (chooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+            var file = chooser.getSelectedFile();
+            preferences.put(PREF_DRAWING, file.getAbsolutePath());
+            try {
+                turtle.load(SegmentFile.open(file.toPath()));
+                turtle.fireChanged();
+            } catch (IOException ex) {
+                ex.printStackTrace();
+                error(ex.getClass().getSimpleName(), "Exception loading \"%s\":", file, ex.getMessage());
+            }
+        }
+    }
+    
+    private void doSaveDrawing(ActionEvent ev) {
+        var chooser = newDrawingChooser();
+        if (chooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
+            var selected = chooser.getSelectedFile();
+            if (!selected.getName().contains(".")) {
+                selected = new File(selected.getParentFile(), selected.getName() + "." + SegmentFile.EXTENSION);
+            }
+            var file = selected;
+            preferences.put(PREF_DRAWING, file.getAbsolutePath());
+            var paths = turtle.drawing();
+            // no script may add to the paths while they are written
+            enabled(false);
+            for (var action : controls) {
+                action.setEnabled(false);
+            }
+            new SwingWorker<Void, Void>() {
+                @Override
+                protected Void doInBackground() throws IOException {
+                    SegmentFile.write(file.toPath(), paths);
+                    return null;
+                }
+                @Override
+                protected void done() {
+                    enabled(true);
+                    try {
+                        get();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    } catch (ExecutionException ex) {
+                        var cause = ex.getCause();
+                        cause.printStackTrace();
+                        error(cause.getClass().getSimpleName(), "Exception saving \"%s\":", file, cause.getMessage());
+                    }
+                }
+            }.execute();
+        }
+    }
+    
+    private JFileChooser newDrawingChooser() {
+        var chooser = new JFileChooser();
+        chooser.setAcceptAllFileFilterUsed(true);
+        chooser.setFileFilter(new FileNameExtensionFilter("Drawing", SegmentFile.EXTENSION));
+        chooser.setFileSelectionMode(JFileChooser.FILES_ONLY);
+        chooser.setMultiSelectionEnabled(false);
+        chooser.setSelectedFile(new File(preferences.get(PREF_DRAWING, "")));
+        return chooser;
+    }
+    
     private void doRun(ActionEvent ev) {
         enabled(false);
         var text = script.getText();
         preferences.put(PREF_SCRIPT, text);
         
-        var worker = new RunWorker(text, turtle, this::runDone);
+        worker = new RunWorker(text, turtle, this::runDone);
+        lastRun = worker;
         worker.execute();
     }
     
-    private void runDone(SwingWorker<?, ?> worker) {
+    private void doStop(ActionEvent ev) {
+        if (worker != null) {
+            worker.stop();
+        }
+    }
+    
+    private void doPause(ActionEvent ev) {
+        if (worker != null) {
+            var control = worker.control();
+            if (control.state() == Control.State.PAUSED) {
+                control.resume();
+                pause.putValue(Action.NAME, "Pause");
+            } else {
+                control.pause();
+                pause.putValue(Action.NAME, "Resume");
+            }
+        }
+    }
+    
+    private void doStep(ActionEvent ev) {
+        if (worker != null) {
+            worker.control().step();
+            pause.putValue(Action.NAME, "Resume");
+        }
+    }
+    
+    private void runDone(SwingWorker<?, ?> done) {
+        worker = null;
         try {
-            worker.get();
+            done.get();
         } catch (ExecutionException ex) {
             var cause = ex.getCause();
+            if (cause instanceof CancellationException) {
+                // stopped: show the drawing as recorded so far
+                turtle.skip();
+                return;
+            }
             cause.printStackTrace();
             error(cause.getClass().getSimpleName(), cause.getMessage());
             if (cause instanceof ParseException pex) {
@@ -233,28 +386,84 @@ public class MainPanel extends JPanel {
 
     }
     
+    /* calls the action once after the turtle was painted */
+    void whenPainted(Runnable action) {
+        turtle.whenPainted(action);
+    }
+    
+    /* runs the script without changing the editor or preferences, then skips the animation */
+    void train(String text, Runnable finished) {
+        enabled(false);
+        worker = new RunWorker(text, turtle, done -> {
+            runDone(done);
+            turtle.skip();
+            finished.run();
+        });
+        worker.execute();
+    }
+    
     private void doQuit(ActionEvent ev) {
         if (closing()) {
             SwingUtilities.getWindowAncestor(this).dispose();
         }
     }
     
+    private void doSkip(ActionEvent ev) {
+        turtle.skip();
+    }
+    
     private void doRefresh(ActionEvent ev) {
-        enabled(true);
-        updateTurtleStatus();
+        if (worker == null) {
+            enabled(true);
+        }
+        turtle.fireChanged();
         repaint();
     }
     
-    private void turtleChanged(PropertyChangeEvent ev) {
-        if (ev.getPropertyName().startsWith(TurtlePanel.PROP_PREFIX)) {
-            updateTurtleStatus();
+    private void doStats(boolean show) {
+        statsStatus.setVisible(show);
+        if (show) {
+            sampled = System.nanoTime();
+            sampledRun = lastRun;
+            sampledExecuted = executed();
+            sampledPaints = turtle.paints();
+            sampleStats(null);
+            statsTimer.start();
+        } else {
+            statsTimer.stop();
         }
+        revalidate();
+    }
+    
+    private long executed() {
+        return lastRun == null ? 0 : lastRun.control().executed();
+    }
+    
+    /* rates since the last sample, the counters are only read here */
+    private void sampleStats(ActionEvent ev) {
+        var now = System.nanoTime();
+        var executed = executed();
+        var paints = turtle.paints();
+        var seconds = max(1, now - sampled) / 1e9;
+        var commands = lastRun == sampledRun ? executed - sampledExecuted : executed;
+        sampled = now;
+        sampledRun = lastRun;
+        sampledExecuted = executed;
+        var fps = (paints - sampledPaints) / seconds;
+        sampledPaints = paints;
+        
+        stats.setLength(0);
+        statsFormatter.format("%,11.0f cmd/s %,11d seg %6.1f ms %3.0f fps %,8.1f MB %7.1f s", 
+            commands / seconds, turtle.segments(), turtle.paintNanos() / 1e6, fps, 
+            turtle.memoryBytes() / 1e6, lastRun == null ? 0.0 : lastRun.elapsed() / 1e9);
+        statsStatus.setText(stats.toString());
     }
     
-    private void updateTurtleStatus() {
-        var status = "%s %03.0f° %5.0f,%-5.0f  %5dms".formatted(
-            turtle.pen()?"▼":"△", turtle.dir(), turtle.x(), turtle.y(), turtle.delay());
-        turtleStatus.setText(status);
+    /* called by the frame clock of the turtle panel, not for every command */
+    private void turtleChanged(boolean pen, double dir, double x, double y, int delay) {
+        status.setLength(0);
+        statusFormatter.format("%s %03.0f° %5.0f,%-5.0f  %5dms", pen?"▼":"△", dir, x, y, delay);
+        turtleStatus.setText(status.toString());
     }
     
     private void error(String title, String format, Object... args) {
@@ -274,6 +483,17 @@ public class MainPanel extends JPanel {
         return action;
     }
     
+    private Action newControl(String name, ActionListener listener) {
+        var action = new AbstractAction(name) {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                listener.actionPerformed(e);
+            }
+        };
+        controls.add(action);
+        return action;
+    }
+    
     private JMenu newMenu(String title) {
         var menu = new JMenu(title);
         return menu;
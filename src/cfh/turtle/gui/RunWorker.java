@@ -6,16 +6,14 @@ package cfh.turtle.gui;
 
 import static java.util.Objects.*;
 
-import java.text.ParseException;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Scanner;
+import java.util.concurrent.CancellationException;
 import java.util.function.Consumer;
 
 import javax.swing.SwingWorker;
 
-import cfh.turtle.calc.Calculator;
-import cfh.turtle.calc.Value;
+import cfh.turtle.jfr.ScriptRunEvent;
+import cfh.turtle.script.Control;
+import cfh.turtle.script.Program;
 
 /**
  * @author Carlos F. Heuberger, 2022-09-15
@@ -27,97 +25,72 @@ public class RunWorker extends SwingWorker<Void, Void> {
     private final TurtlePanel turtle;
     private final Consumer<SwingWorker<Void, Void>> finisher;
     
-    private final Map<String, Value> variables = new HashMap<>();
-    private final Calculator calculator = new Calculator(variables);
-
+    private final Control control = new Control();
+    private volatile Thread runner = null;
+    private volatile long started = 0;
+    private volatile long ended = 0;
+    
     RunWorker(String text, TurtlePanel turtle, Consumer<SwingWorker<Void, Void>> finisher) {
         this.text = requireNonNull(text);
         this.turtle = requireNonNull(turtle);
         this.finisher = requireNonNull(finisher);
     }
 
+    public Control control() { return control; }
+    
+    /** @return nanoseconds since the script started, until it ended; {@code 0} if not started. */
+    public long elapsed() {
+        var start = started;
+        if (start == 0)
+            return 0;
+        var end = ended;
+        return (end != 0 ? end : System.nanoTime()) - start;
+    }
+    
+    /*
+     * Not using cancel(true): done() must only be called after the script really ended,
+     * so it does not change the turtle after a new script was started.
+     */
+    void stop() {
+        control.stop();
+        var thread = runner;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+    
     @Override
     protected Void doInBackground() throws Exception {
-        variables.clear();
-        var lineNumber = 0;
-        try (Scanner scanner = new Scanner(text)) {
-            while (scanner.hasNextLine()) {
-                lineNumber += 1;
-                var line = scanner.nextLine().trim();
-                if (line.isBlank() || line.startsWith("#"))
-                    continue;
-
-                try {
-                    String[] words;
-                    
-                    words = line.split("\\h*=\\h*", 2);
-                    if (words.length == 2) {
-                        var name = words[0];
-                        if (name.isBlank()) 
-                            throw new ParseException("empty name", lineNumber);
-                        var value = calculator.eval(words[1]);
-                        variables.put(name, value);
-                        
-                    } else {
-                        words = line.split("\\h++", 2);
-                        switch (words[0].toLowerCase()) {
-                            case "delay" -> delay(arg(words, 1, lineNumber));
-                            case "reset" -> turtle.reset();
-                            case "forward", "move" -> forward(arg(words, 1, lineNumber));
-                            case "backward", "back" -> backward(arg(words, 1, lineNumber));
-                            case "left" -> left(words.length<2 ? null : words[1]);
-                            case "right" -> right(words.length<2 ? null : words[1]);
-                            case "up", "penup " -> turtle.pen(false);
-                            case "down", "pendown" -> turtle.pen(true);
-                            default -> throw new ParseException("invalid command \"" + line + "\"", lineNumber);
-                        }
-                    }
-                    
-                } catch (IllegalArgumentException ex) {
-                    var message = ex.getClass().getSimpleName() + ": " + ex.getMessage();
-                    throw (ParseException) new ParseException(message, lineNumber).initCause(ex);
-                }
+        runner = Thread.currentThread();
+        started = System.nanoTime();
+        var event = new ScriptRunEvent();
+        event.begin();
+        var result = "done";
+        try {
+            var program = Program.compile(text);
+            program.run(turtle, control);
+            return null;
+        } catch (CancellationException ex) {
+            result = "stopped";
+            throw ex;
+        } catch (Exception | Error ex) {
+            result = ex.getClass().getSimpleName();
+            throw ex;
+        } finally {
+            ended = System.nanoTime();
+            runner = null;
+            // the pooled thread must not keep the interrupt of a stop
+            Thread.interrupted();
+            if (event.shouldCommit()) {
+                event.lines = (int) text.lines().count();
+                event.result = result;
+                event.commit();
             }
         }
-        return null;
     }
 
     @Override
     protected void done() {
         finisher.accept(this);
     }
-    
-    private String arg(String[] words, int i, int lineNumber) throws ParseException {
-        if (i < words.length)
-            return words[i];
-        else
-            throw new ParseException("missing argument", lineNumber);
-    }
-    private void forward(String amount) {
-        var a = calculate(amount);
-        turtle.forward(a);
-    }
-    
-    private void backward(String amount) {
-        var a = calculate(amount);
-        turtle.backward(a);
-    }
-    
-    private void left(String degrees) {
-        var d = degrees==null||degrees.isBlank() ? 90 : calculate(degrees);
-        turtle.left(d);
-    }
-    
-    private void right(String degrees) {
-        var d = degrees==null||degrees.isBlank() ? 90 : calculate(degrees);
-        turtle.right(d);
-    }
-    
-    private void delay(String time) {
-        turtle.delay((int) calculate(time));
-    }
-    
-    private double calculate(String text) {
-        return calculator.eval(text).asDouble();
-    }
 }
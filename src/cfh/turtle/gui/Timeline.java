@@ -0,0 +1,179 @@
+/*
+ * Copyright: Carlos F. Heuberger. All rights reserved.
+ *
+ */
+package cfh.turtle.gui;
+
+import static java.lang.Math.*;
+
+import java.util.Arrays;
+
+/**
+ * Animation times of the points of a drawing.
+ * <p>
+ * For every animated point of the path the time the turtle starts moving to it, the time it
+ * arrives there and its heading on the way are recorded. Times are nanoseconds of the animation
+ * clock, {@link System#nanoTime()} plus an offset, which is advanced to fast-forward the
+ * animation. A movement starts when the previous one ended, or now if the turtle is idle.
+ * Timelines of turtles drawing together share the clock of the first one.
+ * <p>
+ * Points without animation, while no other movement is pending, are not recorded: they are
+ * reached immediately, like all points before the first recorded one. The times are kept in
+ * fixed size chunks, like the points of a {@link cfh.turtle.geom.SegmentStore}, allocated only
+ * for animated points and kept on reset.
+ * <p>
+ * One thread records while the EDT reads: the size is published after the point is written,
+ * so readers must read the size first.
+ *
+ * @author Carlos F. Heuberger, 2026-10-18
+ *
+ */
+final class Timeline {
+
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private long[][] starts = new long[4][];
+    private long[][] arrivals = new long[4][];
+    private float[][] headings = new float[4][];
+    /** number of allocated chunks. */
+    private int chunks = 0;
+
+    /** index of the first recorded point, all points before it are reached. */
+    private volatile int first = 0;
+    /** index after the last recorded point. */
+    private volatile int size = 0;
+    
+    /** timeline holding the clock offset, {@code this} if not sharing the clock. */
+    private final Timeline clock;
+    private volatile long offset = 0;
+
+    Timeline() {
+        clock = this;
+    }
+
+    /** Timeline sharing the clock of the given one. */
+    Timeline(Timeline shared) {
+        clock = shared.clock;
+    }
+
+    /** @return the current time of the animation clock. */
+    long now() {
+        return System.nanoTime() + clock.offset;
+    }
+
+    /** @return the index after the last recorded point. */
+    int size() { return size; }
+
+    long start(int index) { return starts[index >>> CHUNK_BITS][index & CHUNK_MASK]; }
+    long arrival(int index) { return arrivals[index >>> CHUNK_BITS][index & CHUNK_MASK]; }
+    double heading(int index) { return headings[index >>> CHUNK_BITS][index & CHUNK_MASK]; }
+
+    /** @return the time the last recorded movement ends, {@code Long.MIN_VALUE} if none. */
+    long end() {
+        var last = size - 1;
+        return last < first ? Long.MIN_VALUE : arrival(last);
+    }
+
+    /** @return {@code true} if the animation has not reached the last recorded point. */
+    boolean running(long now) {
+        return now < end();
+    }
+
+    /**
+     * Records the movement to the point at the given index. If that point is already recorded,
+     * it was a move replaced by the path, and the movement is extended; following points are
+     * discarded.
+     * @param heading direction of the turtle in degrees
+     * @param speed units per second, not positive for no animation
+     */
+    void record(int index, double distance, double heading, double speed) {
+        record(index, distance, heading, speed, now());
+    }
+
+    /** Records a movement not starting before the given time. */
+    void record(int index, double distance, double heading, double speed, long earliest) {
+        if (index < first)
+            throw new IndexOutOfBoundsException("index " + index + " before " + first);
+        var duration = speed > 0 ? round(abs(distance) / speed * 1e9) : 0;
+        if (index >= size && duration == 0 && max(end(), earliest) <= now())
+            return;  // reached immediately
+        var chunk = index >>> CHUNK_BITS;
+        var offset = index & CHUNK_MASK;
+        if (chunk >= starts.length || starts[chunk] == null) {
+            addChunk(chunk);
+        }
+        if (index < size) {
+            // replaced move: continue the previous movement
+            arrivals[chunk][offset] = max(earliest, arrivals[chunk][offset]) + duration;
+        } else {
+            // points not recorded since the last one were reached before this one was recorded
+            var start = index == size && index > first ? max(earliest, arrival(index - 1)) : earliest;
+            starts[chunk][offset] = start;
+            arrivals[chunk][offset] = start + duration;
+            if (index > size || size == first) {
+                first = index;
+            }
+        }
+        headings[chunk][offset] = (float) heading;
+        size = index + 1;
+    }
+
+    private void addChunk(int chunk) {
+        if (chunk >= starts.length) {
+            var length = max(chunk + 1, 2 * starts.length);
+            starts = Arrays.copyOf(starts, length);
+            arrivals = Arrays.copyOf(arrivals, length);
+            headings = Arrays.copyOf(headings, length);
+        }
+        starts[chunk] = new long[CHUNK_SIZE];
+        arrivals[chunk] = new long[CHUNK_SIZE];
+        headings[chunk] = new float[CHUNK_SIZE];
+        chunks += 1;
+    }
+
+    /** @return the number of points already reached at the given time, up to the size. */
+    int reached(long now) {
+        var high = size;
+        var low = first;
+        while (low < high) {
+            var mid = (low + high) >>> 1;
+            if (arrival(mid) <= now) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /** @return how far the movement to the given point has advanced, {@code 0} to {@code 1}. */
+    double progress(int index, long now) {
+        var start = start(index);
+        var duration = arrival(index) - start;
+        if (duration <= 0)
+            return 1;
+        return min(1, max(0, (double) (now - start) / duration));
+    }
+
+    /** Advances the (shared) clock to the given time, if not already past it. */
+    void skipTo(long time) {
+        var now = now();
+        var ahead = max(time, now) - now;
+        if (ahead > 0) {
+            clock.offset += ahead;
+        }
+    }
+
+    /** @return approximate number of bytes allocated for the recorded points. */
+    long memoryBytes() {
+        return (long) chunks * CHUNK_SIZE * (2 * Long.BYTES + Float.BYTES);
+    }
+
+    /** Removes all points, the allocated chunks are kept for reuse. */
+    void reset() {
+        size = 0;
+        first = 0;
+    }
+}
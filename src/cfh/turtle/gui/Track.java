@@ -0,0 +1,338 @@
+/*
+ * Copyright: Carlos F. Heuberger. All rights reserved.
+ *
+ */
+package cfh.turtle.gui;
+
+import static java.lang.Math.*;
+import static java.util.concurrent.TimeUnit.*;
+import static java.util.Objects.*;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.lang.reflect.InvocationTargetException;
+import java.util.BitSet;
+import java.util.concurrent.CancellationException;
+
+import javax.swing.SwingUtilities;
+
+import cfh.turtle.engine.Engine;
+import cfh.turtle.geom.SegmentGrid;
+import cfh.turtle.geom.SegmentStore;
+import cfh.turtle.jfr.AnimationWaitEvent;
+import cfh.turtle.script.Target;
+
+/**
+ * One turtle of a {@link TurtlePanel}: its state, drawn path and animation.
+ * <p>
+ * Each track is changed by only one thread, the thread running the turtle's script, and has
+ * its own {@link Engine} and segment store, so several turtles draw concurrently without locking.
+ * The EDT reads all tracks of the panel to animate and paint them; the state of the engine is
+ * published by the volatile change counter, read by the EDT before painting.
+ *
+ * @author Carlos F. Heuberger, 2026-10-18
+ *
+ */
+final class Track implements Target {
+
+    /** maximal time in nanoseconds the script may be ahead of the animation. */
+    private static final long MAX_LEAD = MILLISECONDS.toNanos(200);
+    private static final double GRID_CELL = 32;
+
+    private final TurtlePanel panel;
+    private final String name;
+
+    // written by the thread running the script, read by the EDT
+    private volatile int delay;
+    /** incremented on every change of the state. */
+    private volatile long changes = 0;
+
+    private final Engine engine;
+    private final SegmentStore path;
+    private final SegmentGrid grid;
+    private final Timeline timeline;
+
+    // animated state, only used by the EDT
+    private int painted = 0;
+    private int shownEnd = 0;
+    private double shownX;
+    private double shownY;
+    private double shownDir;
+    private boolean shownPen;
+    private boolean shownLine = false;
+
+    /** main turtle of the panel. */
+    Track(TurtlePanel panel) {
+        this.panel = requireNonNull(panel);
+        this.name = "turtle";
+        this.engine = new Engine(SegmentStore.Precision.FLOAT);
+        this.path = engine.path();
+        this.grid = new SegmentGrid(path, GRID_CELL);
+        this.timeline = new Timeline();
+        clear();
+    }
+
+    /* spawned turtle, starting where the parent actually is and when its animation reaches it */
+    private Track(Track parent, String name) {
+        this.panel = parent.panel;
+        this.name = requireNonNull(name);
+        this.engine = parent.engine.spawn();
+        this.path = engine.path();
+        this.grid = new SegmentGrid(path, GRID_CELL);
+        this.timeline = new Timeline(parent.timeline);
+        delay = parent.delay;
+        start(parent.timeline.end());
+    }
+
+    String name() { return name; }
+    int delay() { return delay; }
+    double dir() { return engine.dir(); }
+    double x() { return engine.x(); }
+    double y() { return engine.y(); }
+    boolean pen() { return engine.pen(); }
+    long changes() { return changes; }
+    SegmentStore path() { return path; }
+    Timeline timeline() { return timeline; }
+
+    /** @return approximate heap used by the path, its grid index and timeline. */
+    long memoryBytes() {
+        return path.memoryBytes() + grid.memoryBytes() + timeline.memoryBytes();
+    }
+
+    private void changed() {
+        changes += 1;
+    }
+
+    /* the path holds only the start point */
+    private void start(long time) {
+        grid.reset();
+        grid.update();
+        timeline.reset();
+        timeline.record(0, 0, engine.dir(), 0, time);
+    }
+
+    @Override
+    public void delay(int time) {
+        if (time < 0) {
+            throw new IllegalArgumentException("negative time: " + time);
+        }
+        this.delay = time;
+        changed();
+    }
+
+    @Override
+    public void left(double degrees) {
+        engine.left(degrees);
+        changed();
+    }
+
+    @Override
+    public void right(double degrees) {
+        engine.right(degrees);
+        changed();
+    }
+
+    /** @return the speed of the animation in units per second, {@code 0} for no animation. */
+    double speed() {
+        var time = delay;
+        return time > 0 ? 1000.0 / time : 0;
+    }
+
+    /*
+     * Only records the movement, it is animated by the EDT. The script may run ahead of the
+     * animation by at most MAX_LEAD, so endless scripts do not fill the memory.
+     */
+    @Override
+    public void forward(double amount) {
+        var index = engine.forward(amount);
+        grid.update();
+        timeline.record(index, amount, engine.dir(), speed());
+        changed();
+
+        var now = timeline.now();
+        var ahead = max(timeline.end(), now) - now - MAX_LEAD;
+        if (ahead > 0) {
+            var event = new AnimationWaitEvent();
+            event.begin();
+            try {
+                Thread.sleep(NANOSECONDS.toMillis(ahead) + 1);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("interrupted");
+            }
+            if (event.shouldCommit()) {
+                event.turtle = name;
+                event.commit();
+            }
+        }
+    }
+
+    @Override
+    public void backward(double amount) {
+        forward(-amount);
+    }
+
+    @Override
+    public void pen(boolean down) {
+        engine.pen(down);
+        changed();
+    }
+
+    /*
+     * Resets this turtle, the main turtle also removes all spawned ones. Done by the EDT, waiting
+     * for it, since the EDT must not read the path while it shrinks.
+     */
+    @Override
+    public void reset() {
+        if (SwingUtilities.isEventDispatchThread()) {
+            clear();
+            return;
+        }
+        try {
+            SwingUtilities.invokeAndWait(this::clear);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("interrupted");
+        } catch (InvocationTargetException ex) {
+            if (ex.getCause() instanceof RuntimeException cause)
+                throw cause;
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    /* the timeline and grid are cleared before the path, they index points of the path */
+    private void clear() {
+        timeline.reset();
+        grid.reset();
+        engine.reset();
+        start(timeline.now());
+        panel.reset(this);
+        changed();
+    }
+
+    @Override
+    public Target spawn(String name) {
+        var turtle = new Track(this, name);
+        panel.add(turtle);
+        return turtle;
+    }
+
+    //----------------------------------------------------------------------------------------------
+
+    /*
+     * Interpolates the displayed state for the given time of the animation clock. The script
+     * appends meanwhile, so only points up to the size of the path, read once, are used.
+     */
+    void animate(long now) {
+        var points = path.size();
+        var recorded = min(timeline.size(), points);
+        var reached = min(timeline.reached(now), recorded);
+        if (reached < recorded && reached > 0) {
+            var progress = timeline.progress(reached, now);
+            var x0 = path.x(reached - 1);
+            var y0 = path.y(reached - 1);
+            shownX = x0 + progress * (path.x(reached) - x0);
+            shownY = y0 + progress * (path.y(reached) - y0);
+            shownDir = timeline.heading(reached);
+            shownLine = !path.isMove(reached);
+            shownPen = shownLine;
+            shownEnd = reached;
+        } else if (reached == 0 && recorded > 0) {
+            // spawned, but the animation has not reached that point yet
+            shownX = path.x(0);
+            shownY = path.y(0);
+            shownDir = timeline.heading(0);
+            shownPen = false;
+            shownLine = false;
+            shownEnd = 0;
+        } else {
+            shownX = engine.x();
+            shownY = engine.y();
+            shownDir = engine.dir();
+            shownPen = engine.pen();
+            shownLine = false;
+            shownEnd = points;
+        }
+    }
+
+    boolean shown() { return shownEnd > 0; }
+    double shownX() { return shownX; }
+    double shownY() { return shownY; }
+    double shownDir() { return shownDir; }
+    boolean shownPen() { return shownPen; }
+
+    /** Marks the animated segments as painted after the backing image was invalidated. */
+    void invalidate() {
+        painted = shownEnd;
+    }
+
+    /** Paints the segments in the region (panel coordinates) already painted before. */
+    void paintRegion(Graphics2D ig, Rectangle region, BitSet visible, Path2D tail) {
+        visible.clear();
+        grid.query(region.x-1, region.y-1, region.width+2, region.height+2, visible);
+        tail.reset();
+        var end = min(painted, path.size());
+        var last = -1;
+        for (var i = visible.nextSetBit(1); i >= 0 && i < end; i = visible.nextSetBit(i+1)) {
+            if (i != last+1) {
+                tail.moveTo(path.x(i-1), path.y(i-1));
+            }
+            tail.lineTo(path.x(i), path.y(i));
+            last = i;
+        }
+        ig.draw(tail);
+    }
+
+    /** Appends the segments reached since the last paint. */
+    void paintNew(Graphics2D ig, Path2D tail) {
+        var end = min(shownEnd, path.size());
+        if (end > painted) {
+            // restart at the last painted point, it may have been moved since
+            tail.reset();
+            tail.append(path.getPathIterator(max(0, painted-1), end, null), false);
+            ig.draw(tail);
+            painted = end;
+        }
+    }
+
+    /* line from the last reached point to the moving turtle */
+    void drawPen(Graphics2D gg) {
+        if (shownLine && shownEnd <= path.size()) {
+            gg.draw(new Line2D.Double(path.x(shownEnd-1), path.y(shownEnd-1), shownX, shownY));
+        }
+    }
+
+    void drawTurtle(Graphics2D g, Shape turtle, Color color) {
+        if (!shown())
+            return;
+        var gg = (Graphics2D) g.create();
+        try {
+            gg.setColor(color);
+            gg.translate(shownX, shownY);
+            gg.rotate(-toRadians(shownDir));
+            if (shownPen) {
+                gg.fill(turtle);
+            } else
+                gg.draw(turtle);
+        } finally {
+            gg.dispose();
+        }
+    }
+
+    /** @return the description of the segment near the point (centered coordinates), or {@code null}. */
+    String segmentAt(double px, double py, double distance) {
+        var segment = grid.nearest(px, py, distance);
+        if (segment == -1 || segment >= path.size())
+            return null;
+        return String.format("%s #%d: %.0f,%.0f - %.0f,%.0f", name, segment,
+            path.x(segment-1), -path.y(segment-1), path.x(segment), -path.y(segment));
+    }
+
+    int nearest(double px, double py, double distance) {
+        return grid.nearest(px, py, distance);
+    }
+}
@@ -5,164 +5,445 @@
 package cfh.turtle.gui;
 
 import static java.lang.Math.*;
+import static java.util.Objects.*;
 
 import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Polygon;
+import java.awt.Rectangle;
 import java.awt.Shape;
-import java.awt.geom.Line2D;
+import java.awt.event.ActionEvent;
+import java.awt.event.MouseEvent;
+import java.awt.geom.Area;
 import java.awt.geom.Path2D;
-import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 import javax.swing.JPanel;
+import javax.swing.Timer;
+import javax.swing.ToolTipManager;
+
+import cfh.turtle.geom.SegmentFile;
+import cfh.turtle.jfr.PaintEvent;
+import cfh.turtle.script.Target;
 
 /**
  * @author Carlos F. Heuberger, 2022-09-13
  *
  */
 @SuppressWarnings("serial")
-public class TurtlePanel extends JPanel {
+public class TurtlePanel extends JPanel implements Target {
 
-    public static final String PROP_PREFIX = "turtle.";
-    public static final String PROP_DELAY = PROP_PREFIX + "delay";
-    public static final String PROP_DIR = PROP_PREFIX + "dir";
-    public static final String PROP_POS = PROP_PREFIX + "pos";
-    public static final String PROP_PEN = PROP_PREFIX + "pen";
-    public static final String PROP_RESET = PROP_PREFIX + "reset";
-    
-    private int delay;
-    private double dir;
-    private double x;
-    private double y;
-    private boolean pen;
-    
-    private final Path2D path = new Path2D.Double();
+    /** milliseconds between two frames, changes are published at most once per frame. */
+    public static final int FRAME_MILLIS = 16;
+    
+    private static final int HIT_DISTANCE = 3;
+    /** segments of a loaded drawing painted at once. */
+    private static final int DRAWING_BATCH = 4096;
+    private static final Color TURTLE_COLOR = new Color(0, 0, 255, 100);
+    private static final Color SPAWNED_COLOR = new Color(0, 160, 0, 100);
+    
+    private final Track main;
+    /** turtles spawned by the script, changed by the script threads, iterated by the EDT. */
+    private final List<Track> spawned = new CopyOnWriteArrayList<>();
+    
+    private final Timer frames = new Timer(FRAME_MILLIS, this::frame);
+    private long published = -1;
+    private boolean animating = false;
+    private final List<Listener> listeners = new ArrayList<>();
+    
+    /** loaded drawing shown below the turtles, removed by a reset of the main turtle. */
+    private volatile SegmentFile drawing = null;
+    
+    /** incremented by a reset to invalidate the backing image. */
+    private final AtomicInteger generation = new AtomicInteger();
+    
+    // backing image with the already painted segments, only used by the EDT
+    private BufferedImage image = null;
+    private int imageGeneration = -1;
+    private Color imageColor = null;
+    /** region of the image containing all segments painted so far by the tracks. */
+    private Area valid = new Area();
+    private final Path2D.Float tail = new Path2D.Float();
+    private final BitSet visible = new BitSet();
+
+    /** number of paints, for statistics. */
+    private final LongAdder paints = new LongAdder();
+    private volatile long paintNanos = 0;
+    
+    /** called once after the next paint, only used by the EDT. */
+    private Runnable painted = null;
 
     private Shape turtle = new Polygon(new int[] {20, 0, 0}, new int[] {0, 5, -5}, 3);
     
     TurtlePanel() {
-        reset();
+        main = new Track(this);
+        ToolTipManager.sharedInstance().registerComponent(this);
     }
     
+    @Override
     public void delay(int time) {
-        if (time < 0) {
-            throw new IllegalArgumentException("negative time: " + time);
-        }
-        var old = this.delay;
-        this.delay = time;
-        firePropertyChange(PROP_DELAY, old, this.delay);
+        main.delay(time);
     }
     
-    public int delay() { return delay; }
-    public double dir() { return dir; }
-    public double x() { return x; }
-    public double y() { return y; }
-    public boolean pen() { return pen; }
+    public int delay() { return main.delay(); }
+    public double dir() { return main.dir(); }
+    public double x() { return main.x(); }
+    public double y() { return main.y(); }
+    public boolean pen() { return main.pen(); }
+    
+    /** @return the speed of the animation in units per second, {@code 0} for no animation. */
+    public double speed() { return main.speed(); }
     
+    @Override
     public void left(double degrees) {
-        var old = dir;
-        dir = (dir + degrees) % 360;
-        firePropertyChange(PROP_DIR, old, dir);
-        repaint();
+        main.left(degrees);
     }
     
+    @Override
     public void right(double degrees) {
-        var old = dir;
-        dir = (dir - degrees) %360;
-        while (dir < 0) {
-            dir += 360;
+        main.right(degrees);
+    }
+    
+    @Override
+    public void forward(double amount) {
+        main.forward(amount);
+    }
+    
+    @Override
+    public void backward(double amount) {
+        main.backward(amount);
+    }
+    
+    @Override
+    public void pen(boolean down) {
+        main.pen(down);
+    }
+    
+    @Override
+    public void reset() {
+        main.reset();
+    }
+    
+    /** Spawns a new turtle drawing concurrently into this panel, with its own path. */
+    @Override
+    public Target spawn(String name) {
+        return main.spawn(name);
+    }
+    
+    /* called by a track after it was reset */
+    void reset(Track track) {
+        if (track == main) {
+            spawned.clear();
+            drawing = null;
         }
-        firePropertyChange(PROP_DIR, old, dir);
+        generation.incrementAndGet();
+    }
+    
+    /* called by a track spawning a new turtle */
+    void add(Track track) {
+        spawned.add(track);
+    }
+    
+    /** 
+     * Resets the turtles and shows the drawing, painted straight from the file mapping; the
+     * blocks of the file are indexed while painted, so repainting a region later only reads the
+     * blocks inside it. Must not be called while a script is running.
+     */
+    public void load(SegmentFile file) {
+        main.reset();
+        drawing = requireNonNull(file);
+        generation.incrementAndGet();
         repaint();
     }
     
-    void go0(double amount) {
-        var step = amount<0 ? -0.5 : 1;
-        var sx = x;
-        var sy = y;
-        var cos = cos(toRadians(dir));
-        var sin = -sin(toRadians(dir));
-        if (delay > 0) {
-            try {
-                for (var i = 1; i < (amount / step); i++) {
-                    var d = i * step;
-                    var old = new Point2D.Double(x, y);
-                    x = sx + d * cos;
-                    y = sy + d * sin;
-                    firePropertyChange(PROP_POS, old, new Point2D.Double(x, y));
-                    repaint();
-                    Thread.sleep(delay);
-                }
-            } catch (InterruptedException ex) {
-                Thread.currentThread().interrupt();
-            }
+    /** @return the loaded drawing, if any, and the paths of all turtles; for saving when no script is running. */
+    public List<Shape> drawing() {
+        var paths = new ArrayList<Shape>();
+        var file = drawing;
+        if (file != null) {
+            paths.add(file);
         }
-        x = sx + amount * cos;
-        y = sy + amount * sin;
+        paths.add(main.path());
+        for (var track : spawned) {
+            paths.add(track.path());
+        }
+        return paths;
     }
     
-    public void forward(double amount) {
-        var old = new Point2D.Double(x, y);
-        go0(amount);
-        if (pen) {
-            path.lineTo(x, y);
-        } else {
-            path.moveTo(x, y);
-        }
-        firePropertyChange(PROP_POS, old, new Point2D.Double(x, y));
-        repaint();
+    //----------------------------------------------------------------------------------------------
+    
+    public void addListener(Listener listener) {
+        listeners.add(requireNonNull(listener));
     }
     
-    public void backward(double amount) {
-        forward(-amount);
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
     }
-    public void pen(boolean down) {
-        var old = pen;
-        pen = down;
-        firePropertyChange(PROP_PEN, old, pen);
+    
+    /* frame clock: repaint and notify only if something changed or is being animated */
+    private void frame(ActionEvent ev) {
+        var now = main.timeline().now();
+        var current = main.changes() + spawned.size();
+        var running = main.timeline().running(now);
+        for (var track : spawned) {
+            current += track.changes();
+            running |= track.timeline().running(now);
+        }
+        if (current != published || running || animating) {
+            published = current;
+            animating = running;
+            repaint();
+            fireChanged();
+        }
+    }
+    
+    /** Finishes the actual animation of all turtles immediately, must be called on the EDT. */
+    public void skip() {
+        var end = main.timeline().end();
+        for (var track : spawned) {
+            end = max(end, track.timeline().end());
+        }
+        main.timeline().skipTo(end);
         repaint();
     }
     
-    public void reset() {
-        dir = 0;
-        x = y = 0;
-        pen = true;
-        path.reset();
-        path.moveTo(x, y);
-        firePropertyChange(PROP_RESET, null, null);
+    /** Notifies the listeners immediately with the displayed state of the main turtle, must be called on the EDT. */
+    public void fireChanged() {
+        main.animate(main.timeline().now());
+        var delay = main.delay();
+        for (var listener : listeners) {
+            listener.turtleChanged(main.shownPen(), main.shownDir(), main.shownX(), main.shownY(), delay);
+        }
+    }
+    
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        frames.start();
+    }
+    
+    @Override
+    public void removeNotify() {
+        frames.stop();
+        super.removeNotify();
     }
 
     @Override
     protected void paintComponent(Graphics g) {
+        var start = System.nanoTime();
+        var event = new PaintEvent();
+        event.begin();
         super.paintComponent(g);
+        var clip = g.getClipBounds();
+        var now = main.timeline().now();
+        main.animate(now);
+        for (var track : spawned) {
+            track.animate(now);
+        }
+        updateImage(clip != null ? clip : new Rectangle(getSize()));
         var gg = (Graphics2D) g.create();
         try {
-            gg.setColor(Color.WHITE);
-            gg.fill(getBounds());
+            gg.drawImage(image, 0, 0, null);
             
             gg.translate(getWidth()/2, getHeight()/2);
             
-            drawPath(gg);
+            gg.setColor(getForeground());
+            main.drawPen(gg);
+            for (var track : spawned) {
+                track.drawPen(gg);
+            }
             drawAxes(gg);
-            drawTurtle(gg);
+            for (var track : spawned) {
+                track.drawTurtle(gg, turtle, SPAWNED_COLOR);
+            }
+            main.drawTurtle(gg, turtle, TURTLE_COLOR);
         } finally {
             gg.dispose();
         }
+        paintNanos = System.nanoTime() - start;
+        paints.increment();
+        if (event.shouldCommit()) {
+            event.segments = segments();
+            event.width = getWidth();
+            event.height = getHeight();
+            event.commit();
+        }
+        if (painted != null) {
+            var action = painted;
+            painted = null;
+            action.run();
+        }
+    }
+    
+    /** @return the number of paints so far. */
+    public long paints() { return paints.sum(); }
+    
+    /** @return the duration of the last paint in nanoseconds. */
+    public long paintNanos() { return paintNanos; }
+    
+    /** @return the line segments of all turtles and the loaded drawing. */
+    public long segments() {
+        var file = drawing;
+        var segments = file == null ? 0 : file.segments();
+        segments += main.path().segments();
+        for (var track : spawned) {
+            segments += track.path().segments();
+        }
+        return segments;
+    }
+    
+    /** 
+     * @return approximate heap used by the paths, grid indexes and timelines of all turtles,
+     *         the loaded drawing is mapped
+     */
+    public long memoryBytes() {
+        var bytes = main.memoryBytes();
+        for (var track : spawned) {
+            bytes += track.memoryBytes();
+        }
+        return bytes;
+    }
+    
+    /* calls the action once after the next paint, must be called on the EDT */
+    void whenPainted(Runnable action) {
+        painted = action;
     }
     
-    private void drawPath(Graphics2D gg) {
-        gg.setColor(getForeground());
-        gg.draw(path);
-        if (pen) {
-            var end = path.getCurrentPoint();
-            if (end == null) {
-                gg.draw(new Line2D.Double(0, 0, x, y));
-            } else {
-                gg.draw(new Line2D.Double(end.getX(), end.getY(), x, y));
+    /*
+     * Updates the backing image: regions of the clip not yet valid are painted with the segments
+     * found in the grids of the tracks, then the segments reached since the last paint are 
+     * appended. After a resize, a reset or a color change the whole image is invalid, but only 
+     * the visible part is painted again.
+     */
+    private void updateImage(Rectangle clip) {
+        var width = max(1, getWidth());
+        var height = max(1, getHeight());
+        var foreground = getForeground();
+        var current = generation.get();
+        
+        if (image == null || image.getWidth() != width || image.getHeight() != height) {
+            var config = getGraphicsConfiguration();
+            image = config != null 
+                ? config.createCompatibleImage(width, height) 
+                : new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            imageGeneration = -1;
+        }
+        if (current != imageGeneration || !foreground.equals(imageColor)) {
+            imageGeneration = current;
+            imageColor = foreground;
+            valid = new Area();
+            main.invalidate();
+            for (var track : spawned) {
+                track.invalidate();
+            }
+        }
+        
+        var ig = image.createGraphics();
+        try {
+            if (!valid.contains(clip)) {
+                var g = (Graphics2D) ig.create();
+                try {
+                    g.clip(clip);
+                    g.setColor(Color.WHITE);
+                    g.fill(clip);
+                    g.translate(width/2, height/2);
+                    g.setColor(foreground);
+                    var region = new Rectangle(clip.x-width/2, clip.y-height/2, clip.width, clip.height);
+                    var file = drawing;
+                    if (file != null) {
+                        paintDrawing(g, file, region);
+                    }
+                    main.paintRegion(g, region, visible, tail);
+                    for (var track : spawned) {
+                        track.paintRegion(g, region, visible, tail);
+                    }
+                } finally {
+                    g.dispose();
+                }
+                valid.add(new Area(clip));
+            }
+            
+            ig.translate(width/2, height/2);
+            ig.setColor(foreground);
+            main.paintNew(ig, tail);
+            for (var track : spawned) {
+                track.paintNew(ig, tail);
+            }
+        } finally {
+            ig.dispose();
+        }
+    }
+    
+    /* 
+     * Paints the segments of the loaded drawing crossing the region, in batches so the
+     * memory does not depend on the size of the drawing.
+     */
+    private void paintDrawing(Graphics2D g, SegmentFile file, Rectangle region) {
+        var minX = region.x - 1;
+        var minY = region.y - 1;
+        var maxX = region.x + region.width + 1;
+        var maxY = region.y + region.height + 1;
+        tail.reset();
+        var count = 0;
+        var last = -1;
+        var size = file.size();
+        for (var block = 0; block < file.blocks(); block++) {
+            if (!file.blockIntersects(block, minX, minY, maxX, maxY))
+                continue;
+            var from = max(1, block * SegmentFile.BLOCK_SIZE);
+            var to = min(size, (block + 1) * SegmentFile.BLOCK_SIZE);
+            var x0 = file.x(from - 1);
+            var y0 = file.y(from - 1);
+            for (var i = from; i < to; i++) {
+                var x1 = file.x(i);
+                var y1 = file.y(i);
+                if (!file.isMove(i)
+                    && max(x0, x1) >= minX && min(x0, x1) <= maxX 
+                    && max(y0, y1) >= minY && min(y0, y1) <= maxY) {
+                    if (i != last+1) {
+                        tail.moveTo(x0, y0);
+                    }
+                    tail.lineTo(x1, y1);
+                    last = i;
+                    if (++count == DRAWING_BATCH) {
+                        g.draw(tail);
+                        tail.reset();
+                        count = 0;
+                        last = -1;
+                    }
+                }
+                x0 = x1;
+                y0 = y1;
             }
         }
+        g.draw(tail);
+    }
+    
+    /**
+     * Hit-test using the segment grid of the main turtle.
+     * @return the index of the segment near the given point of this panel, or {@code -1}
+     */
+    public int segmentAt(int px, int py) {
+        return main.nearest(px - getWidth()/2, py - getHeight()/2, HIT_DISTANCE);
+    }
+    
+    @Override
+    public String getToolTipText(MouseEvent ev) {
+        var px = ev.getX() - getWidth()/2;
+        var py = ev.getY() - getHeight()/2;
+        var text = main.segmentAt(px, py, HIT_DISTANCE);
+        for (var i = spawned.iterator(); text == null && i.hasNext(); ) {
+            text = i.next().segmentAt(px, py, HIT_DISTANCE);
+        }
+        return text;
     }
 
     private void drawAxes(Graphics2D g) {
@@ -180,18 +461,11 @@ public class TurtlePanel extends JPanel {
         }
     }
     
-    private void drawTurtle(Graphics2D g) {
-        var gg = (Graphics2D) g.create();
-        try {
-            gg.setColor(new Color(0, 0, 255, 100));
-            gg.translate(x, y);
-            gg.rotate(-toRadians(dir));
-            if (pen) {
-                gg.fill(turtle);
-            } else
-                gg.draw(turtle);
-        } finally {
-            gg.dispose();
-        }
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+    
+    /** Coalesced state change notification, called on the EDT at most once per frame. */
+    @FunctionalInterface
+    public static interface Listener {
+        public void turtleChanged(boolean pen, double dir, double x, double y, int delay);
     }
 }
@@ -0,0 +1,29 @@
+/*
+ * Copyright: Carlos F. Heuberger. All rights reserved.
+ *
+ */
+package cfh.turtle.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for a turtle waiting for its animation to catch up.
+ *
+ * @author Carlos F. Heuberger, 2026-10-18
+ *
+ */
+@Name("cfh.turtle.AnimationWait")
+@Label("Animation Wait")
+@Category("Turtle")
+@Description("Script thread sleeping until the animation catches up")
+@StackTrace(false)
+public final class AnimationWaitEvent extends Event {
+
+    @Label("Turtle")
+    public String turtle;
+}
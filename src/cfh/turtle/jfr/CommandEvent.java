@@ -0,0 +1,32 @@
+/*
+ * Copyright: Carlos F. Heuberger. All rights reserved.
+ *
+ */
+package cfh.turtle.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for the execution of one instruction by a turtle, including waiting for the animation.
+ *
+ * @author Carlos F. Heuberger, 2026-10-18
+ *
+ */
+@Name("cfh.turtle.Command")
+@Label("Command")
+@Category("Turtle")
+@Description("Execution of one script command")
+@StackTrace(false)
+public final class CommandEvent extends Event {
+
+    @Label("Line")
+    public int line;
+
+    @Label("Command")
+    public String command;
+}
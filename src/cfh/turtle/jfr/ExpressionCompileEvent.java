@@ -0,0 +1,33 @@
+/*
+ * Copyright: Carlos F. Heuberger. All rights reserved.
+ *
+ */
+package cfh.turtle.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for compiling an expression to bytecode, successful or not.
+ *
+ * @author Carlos F. Heuberger, 2026-10-18
+ *
+ */
+@Name("cfh.turtle.ExpressionCompile")
+@Label("Expression Compile")
+@Category("Turtle")
+@Description("Compiling an expression to bytecode")
+@StackTrace(false)
+public final class ExpressionCompileEvent extends Event {
+
+    @Label("Expression")
+    public String expression;
+
+    @Label("Failure")
+    @Description("the exception if compiling failed, the expression is then always interpreted")
+    public String failure;
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright: Carlos F. Heuberger. All rights reserved.
+ *
+ */
+package cfh.turtle.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for one evaluation of an expression by the calculator.
+ *
+ * @author Carlos F. Heuberger, 2026-10-18
+ *
+ */
+@Name("cfh.turtle.Expression")
+@Label("Expression")
+@Category("Turtle")
+@Description("Evaluation of an expression")
+@StackTrace(false)
+public final class ExpressionEvent extends Event {
+
+    @Label("Expression")
+    public String expression;
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright: Carlos F. Heuberger. All rights reserved.
+ *
+ */
+package cfh.turtle.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for one paint of the turtle panel.
+ *
+ * @author Carlos F. Heuberger, 2026-10-18
+ *
+ */
+@Name("cfh.turtle.Paint")
+@Label("Paint")
+@Category("Turtle")
+@Description("Painting the turtle panel")
+@StackTrace(false)
+public final class PaintEvent extends Event {
+
+    @Label("Segments")
+    @Description("line segments drawn by all turtles")
+    public long segments;
+
+    @Label("Width")
+    public int width;
+
+    @Label("Height")
+    public int height;
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright: Carlos F. Heuberger. All rights reserved.
+ *
+ */
+package cfh.turtle.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for one run of a script, from compiling until all turtles ended.
+ *
+ * @author Carlos F. Heuberger, 2026-10-18
+ *
+ */
+@Name("cfh.turtle.ScriptRun")
+@Label("Script Run")
+@Category("Turtle")
+@Description("Compiling and running a script")
+@StackTrace(false)
+public final class ScriptRunEvent extends Event {
+
+    @Label("Lines")
+    public int lines;
+
+    @Label("Result")
+    @Description("done, stopped, or the exception ending the run")
+    public String result;
+}
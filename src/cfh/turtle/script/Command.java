@@ -0,0 +1,55 @@
+/*
+ * Copyright: Carlos F. Heuberger. All rights reserved.
+ *
+ */
+package cfh.turtle.script;
+
+import static java.util.Map.*;
+
+import java.util.Map;
+
+/**
+ * @author Carlos F. Heuberger, 2026-10-18
+ *
+ */
+public enum Command {
+
+    ASSIGN,
+    DELAY,
+    RESET,
+    FORWARD,
+    BACKWARD,
+    LEFT,
+    RIGHT,
+    PENUP,
+    PENDOWN,
+    REPEAT,
+    WHILE,
+    TURTLE,
+    END,
+    ;
+    
+    //==============================================================================================
+    
+    private static final Map<String, Command> keywords = ofEntries(
+        entry("delay", DELAY),
+        entry("reset", RESET),
+        entry("forward", FORWARD),
+        entry("move", FORWARD),
+        entry("backward", BACKWARD),
+        entry("back", BACKWARD),
+        entry("left", LEFT),
+        entry("right", RIGHT),
+        entry("up", PENUP),
+        entry("penup", PENUP),
+        entry("down", PENDOWN),
+        entry("pendown", PENDOWN),
+        entry("repeat", REPEAT),
+        entry("while", WHILE),
+        entry("turtle", TURTLE),
+        entry("end", END)
+        );
+    
+    /** @return the command for the (lower case) keyword or {@code null} if none. */
+    public static Command keyword(String word) { return keywords.get(word); }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright: Carlos F. Heuberger. All rights reserved.
+ *
+ */
+package cfh.turtle.script;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cooperative control of a running {@link Program}: stop, pause, resume and single step.
+ * <p>
+ * The program calls {@link #check(Instruction)} before each instruction, including every loop
+ * iteration. While running, that is just a volatile read and an interrupt test. Stopping throws a
+ * {@link CancellationException} from the next check; to also end a target waiting inside a
+ * command, the running thread should be interrupted, an interrupted check is stopped too.
+ * The methods are called by another thread, normally the EDT. The executed instructions of all
+ * turtles are counted for statistics, without contention between the turtles.
+ *
+ * @author Carlos F. Heuberger, 2026-10-18
+ *
+ */
+public final class Control {
+
+    public enum State { RUNNING, PAUSED, STOPPED }
+
+    private volatile State state = State.RUNNING;
+    /** number of instructions to execute while paused. */
+    private int steps = 0;
+    /** line of the instruction waiting while paused, 0 if not waiting. */
+    private volatile int line = 0;
+    private final LongAdder executed = new LongAdder();
+
+    public State state() { return state; }
+
+    /** @return the number of instructions checked so far, by all turtles. */
+    public long executed() { return executed.sum(); }
+
+    /** @return the line of the instruction waiting to be executed, {@code 0} if not paused. */
+    public int line() { return line; }
+
+    public synchronized void stop() {
+        state = State.STOPPED;
+        notifyAll();
+    }
+
+    public synchronized void pause() {
+        if (state == State.RUNNING) {
+            state = State.PAUSED;
+        }
+    }
+
+    public synchronized void resume() {
+        if (state == State.PAUSED) {
+            state = State.RUNNING;
+            notifyAll();
+        }
+    }
+
+    /** Executes the next instruction if paused, pauses if running. */
+    public synchronized void step() {
+        if (state == State.RUNNING) {
+            state = State.PAUSED;
+        } else if (state == State.PAUSED) {
+            steps += 1;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Called by the program before executing the given instruction,
+     * waits while paused.
+     * @throws CancellationException if stopped or interrupted
+     */
+    public void check(Instruction instruction) {
+        executed.increment();
+        if (state == State.RUNNING && !Thread.currentThread().isInterrupted())
+            return;
+        synchronized (this) {
+            try {
+                while (state == State.PAUSED && steps == 0) {
+                    line = instruction.line();
+                    wait();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                state = State.STOPPED;
+            } finally {
+                line = 0;
+            }
+            if (state == State.STOPPED || Thread.currentThread().isInterrupted())
+                throw new CancellationException("stopped at line " + instruction.line());
+            if (steps > 0) {
+                steps -= 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright: Carlos F. Heuberger. All rights reserved.
+ *
+ */
+package cfh.turtle.script;
+
+import static java.util.Objects.*;
+
+import cfh.turtle.calc.Expression;
+
+/**
+ * One compiled script line.
+ * 
+ * @param line      script line number, starting at 1
+ * @param command   the command
+ * @param name      variable name for {@link Command#ASSIGN}, otherwise {@code null}
+ * @param slot      variable slot for {@link Command#ASSIGN}, otherwise {@code -1}
+ * @param argument  argument expression or {@code null} if none; 
+ *                  for {@link Command#END} of a {@code while} loop, its condition
+ * @param level     loop nesting level of {@link Command#REPEAT}, {@link Command#WHILE} and 
+ *                  {@link Command#END}, starting at 1, otherwise {@code 0}
+ * @param jump      index of the matching {@link Command#END} for loops, 
+ *                  of the loop start for {@link Command#END}, otherwise {@code -1}
+ * 
+ * @author Carlos F. Heuberger, 2026-10-18
+ *
+ */
+public record Instruction(int line, Command command, String name, int slot, Expression argument, int level, int jump) {
+
+    public Instruction {
+        requireNonNull(command);
+    }
+    
+    public Instruction(int line, Command command, String name, int slot, Expression argument) {
+        this(line, command, name, slot, argument, 0, -1);
+    }
+}
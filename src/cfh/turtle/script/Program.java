@@ -0,0 +1,380 @@
+/*
+ * Copyright: Carlos F. Heuberger. All rights reserved.
+ *
+ */
+package cfh.turtle.script;
+
+import static java.util.Objects.*;
+
+import java.text.ParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+
+import cfh.turtle.calc.Calculator;
+import cfh.turtle.calc.Expression;
+import cfh.turtle.calc.Frame;
+import cfh.turtle.calc.Tracer;
+import cfh.turtle.jfr.CommandEvent;
+
+/**
+ * A script compiled into an array of instructions.
+ * The script text is parsed once by {@link #compile(String)}, including the argument expressions,
+ * the resulting program can be {@link #run(Target) run} any number of times without handling 
+ * the text again. A program must not be run concurrently by different threads.
+ * <p>
+ * Loops are compiled into jumps, {@code repeat <count>} and {@code while <condition>} 
+ * blocks are terminated by {@code end}. Inside loops the variable {@value #DEPTH} holds the
+ * nesting level, starting at 1, {@value #INDEX} the iteration of the innermost loop, starting at 0,
+ * and {@value #INDEX}{@code <level>} the iteration of the loop at the given level.
+ * <p>
+ * A {@code turtle <name>} block, also terminated by {@code end}, is executed concurrently by a
+ * new turtle {@link Target#spawn(String) spawned} from the actual one, with a copy of the 
+ * variables, while the spawning turtle continues after the block. The run ends after all
+ * turtles have finished.
+ * 
+ * @author Carlos F. Heuberger, 2026-10-18
+ *
+ */
+public final class Program {
+
+    /** name of the variable with the actual loop nesting level. */
+    public static final String DEPTH = "depth";
+    /** name of the variable with the iteration of the innermost loop. */
+    public static final String INDEX = "index";
+    
+    public static Program compile(String text) throws ParseException {
+        requireNonNull(text);
+        var frame = new Frame();
+        var calculator = new Calculator(frame);
+        var instructions = new ArrayList<Instruction>();
+        var blocks = new ArrayDeque<Integer>();
+        var depth = 0;
+        var maxLevel = 0;
+        var lineNumber = 0;
+        var length = text.length();
+        var start = 0;
+        while (start < length) {
+            lineNumber += 1;
+            var end = start;
+            while (end < length && text.charAt(end) != '\n' && text.charAt(end) != '\r') {
+                end += 1;
+            }
+            var line = text.substring(start, end).trim();
+            if (end < length && text.charAt(end) == '\r' && end+1 < length && text.charAt(end+1) == '\n') {
+                end += 1;
+            }
+            start = end + 1;
+            
+            if (line.isBlank() || line.startsWith("#"))
+                continue;
+            Instruction instruction;
+            try {
+                instruction = compileLine(calculator, line, lineNumber);
+            } catch (IllegalArgumentException ex) {
+                throw parseException(ex, lineNumber);
+            }
+            switch (instruction.command()) {
+                case REPEAT, WHILE -> {
+                    blocks.push(instructions.size());
+                    depth += 1;
+                    maxLevel = Math.max(maxLevel, depth);
+                    instructions.add(instruction);
+                }
+                case TURTLE -> {
+                    blocks.push(instructions.size());
+                    instructions.add(instruction);
+                }
+                case END -> {
+                    if (blocks.isEmpty())
+                        throw new ParseException("end without loop", lineNumber);
+                    var blockIndex = blocks.pop();
+                    var block = instructions.get(blockIndex);
+                    var endIndex = instructions.size();
+                    if (block.command() == Command.TURTLE) {
+                        instructions.set(blockIndex, 
+                            new Instruction(block.line(), block.command(), block.name(), -1, null, 0, endIndex));
+                        instructions.add(new Instruction(lineNumber, Command.END, null, -1, null, 0, blockIndex));
+                    } else {
+                        instructions.set(blockIndex, 
+                            new Instruction(block.line(), block.command(), null, -1, block.argument(), depth, endIndex));
+                        var condition = block.command() == Command.WHILE ? block.argument() : null;
+                        instructions.add(new Instruction(lineNumber, Command.END, null, -1, condition, depth, blockIndex));
+                        depth -= 1;
+                    }
+                }
+                default -> instructions.add(instruction);
+            }
+        }
+        if (!blocks.isEmpty())
+            throw new ParseException("missing end", instructions.get(blocks.peek()).line());
+        
+        var levelSlots = new int[maxLevel + 1];
+        for (var level = 1; level <= maxLevel; level++) {
+            levelSlots[level] = frame.slot(INDEX + level);
+        }
+        return new Program(instructions.toArray(Instruction[]::new), frame, calculator, levelSlots);
+    }
+    
+    private static Instruction compileLine(Calculator calculator, String line, int lineNumber) throws ParseException {
+        var equal = assignment(line);
+        if (equal != -1) {
+            var name = line.substring(0, equal).strip();
+            if (name.isBlank()) 
+                throw new ParseException("empty name", lineNumber);
+            var argument = line.substring(equal+1).strip();
+            if (argument.isEmpty())
+                throw new ParseException("missing argument", lineNumber);
+            var expression = calculator.compile(argument);
+            return new Instruction(lineNumber, Command.ASSIGN, name, calculator.frame().slot(name), expression);
+        }
+        
+        var space = 0;
+        while (space < line.length() && !isHorizontalSpace(line.charAt(space))) {
+            space += 1;
+        }
+        var word = line.substring(0, space).toLowerCase(Locale.ROOT);
+        var argument = line.substring(space).strip();
+        
+        var command = Command.keyword(word);
+        if (command == null)
+            throw new ParseException("invalid command \"" + line + "\"", lineNumber);
+        return switch (command) {
+            case DELAY, FORWARD, BACKWARD, REPEAT, WHILE -> {
+                if (argument.isEmpty())
+                    throw new ParseException("missing argument", lineNumber);
+                yield new Instruction(lineNumber, command, null, -1, calculator.compile(argument));
+            }
+            case LEFT, RIGHT -> new Instruction(lineNumber, command, null, -1, argument.isEmpty() ? null : calculator.compile(argument));
+            case TURTLE -> {
+                if (argument.isEmpty())
+                    throw new ParseException("missing name", lineNumber);
+                yield new Instruction(lineNumber, command, argument, -1, null);
+            }
+            default -> {
+                if (!argument.isEmpty())
+                    throw new ParseException("unexpected argument \"" + argument + "\"", lineNumber);
+                yield new Instruction(lineNumber, command, null, -1, null);
+            }
+        };
+    }
+    
+    /** @return the index of the assignment {@code =} or {@code -1} if none, ignoring {@code == != <= >=}. */
+    private static int assignment(String line) {
+        for (var i = line.indexOf('='); i != -1; i = line.indexOf('=', i+1)) {
+            var previous = i > 0 ? line.charAt(i-1) : ' ';
+            var next = i+1 < line.length() ? line.charAt(i+1) : ' ';
+            if (next == '=') {
+                i += 1;
+            } else if (previous != '<' && previous != '>' && previous != '!') {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    private static boolean isHorizontalSpace(char ch) {
+        return ch == ' ' || ch == '\t' || Character.isSpaceChar(ch);
+    }
+    
+    private static ParseException parseException(IllegalArgumentException ex, int lineNumber) {
+        var message = ex.getClass().getSimpleName() + ": " + ex.getMessage();
+        return (ParseException) new ParseException(message, lineNumber).initCause(ex);
+    }
+    
+    //----------------------------------------------------------------------------------------------
+    
+    private final Instruction[] instructions;
+    private final Frame frame;
+    private final Calculator calculator;
+    
+    private final int depthSlot;
+    private final int indexSlot;
+    /** slot of the iteration variable by loop level. */
+    private final int[] levelSlots;
+    
+    private Program(Instruction[] instructions, Frame frame, Calculator calculator, int[] levelSlots) {
+        this.instructions = instructions;
+        this.frame = frame;
+        this.calculator = calculator;
+        this.depthSlot = frame.slot(DEPTH);
+        this.indexSlot = frame.slot(INDEX);
+        this.levelSlots = levelSlots;
+    }
+    
+    public int size() { return instructions.length; }
+    
+    public Instruction instruction(int index) { return instructions[index]; }
+    
+    /** 
+     * Sets the tracer for the evaluation of the arguments, {@code null} for no tracing.
+     * Spawned turtles use the same tracer from their own threads.
+     */
+    public void tracer(Tracer tracer) {
+        calculator.tracer(tracer);
+    }
+    
+    /**
+     * Runs the program against the given turtle, using new, empty variables.
+     * 
+     * @throws ParseException if the evaluation of an argument fails, 
+     *         the error offset is the number of the failing line
+     */
+    public void run(Target target) throws ParseException {
+        run(target, new Control());
+    }
+    
+    /**
+     * Runs the program against the given turtle, using new, empty variables. 
+     * The control is checked before each instruction.
+     * 
+     * @throws ParseException if the evaluation of an argument fails, 
+     *         the error offset is the number of the failing line
+     * @throws java.util.concurrent.CancellationException if stopped by the control
+     */
+    public void run(Target target, Control control) throws ParseException {
+        requireNonNull(target);
+        requireNonNull(control);
+        frame.clear();
+        frame.setInt(depthSlot, 0);
+        try (var turtles = new Turtles()) {
+            var counts = new int[levelSlots.length];
+            var iterations = new int[levelSlots.length];
+            new Runner(target, control, calculator, turtles, 0, instructions.length, counts, iterations).call();
+            turtles.join();
+        }
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+    
+    /** Executes a range of the instructions for one turtle. */
+    final class Runner implements Callable<Void> {
+        
+        private final Target target;
+        private final Control control;
+        private final Calculator calculator;
+        private final Frame frame;
+        private final Turtles turtles;
+        private final int from;
+        private final int to;
+        private final int[] counts;
+        private final int[] iterations;
+        
+        private Runner(Target target, Control control, Calculator calculator, Turtles turtles,
+            int from, int to, int[] counts, int[] iterations) {
+            this.target = target;
+            this.control = control;
+            this.calculator = calculator;
+            this.frame = calculator.frame();
+            this.turtles = turtles;
+            this.from = from;
+            this.to = to;
+            this.counts = counts;
+            this.iterations = iterations;
+        }
+        
+        @Override
+        public Void call() throws ParseException {
+            var pc = from;
+            while (pc < to) {
+                var instruction = instructions[pc];
+                pc += 1;
+                control.check(instruction);
+                var event = new CommandEvent();
+                event.begin();
+                try {
+                    switch (instruction.command()) {
+                        case ASSIGN -> calculator.assign(instruction.slot(), instruction.argument());
+                        case DELAY -> target.delay((int) calculate(instruction.argument()));
+                        case RESET -> target.reset();
+                        case FORWARD -> target.forward(calculate(instruction.argument()));
+                        case BACKWARD -> target.backward(calculate(instruction.argument()));
+                        case LEFT -> target.left(angle(instruction.argument()));
+                        case RIGHT -> target.right(angle(instruction.argument()));
+                        case PENUP -> target.pen(false);
+                        case PENDOWN -> target.pen(true);
+                        case REPEAT -> {
+                            var count = (int) calculate(instruction.argument());
+                            if (count > 0) {
+                                counts[instruction.level()] = count;
+                                enter(instruction.level());
+                            } else {
+                                pc = instruction.jump() + 1;
+                            }
+                        }
+                        case WHILE -> {
+                            if (calculate(instruction.argument()) != 0) {
+                                enter(instruction.level());
+                            } else {
+                                pc = instruction.jump() + 1;
+                            }
+                        }
+                        case TURTLE -> {
+                            spawn(instruction, pc);
+                            pc = instruction.jump() + 1;
+                        }
+                        case END -> {
+                            var level = instruction.level();
+                            iterations[level] += 1;
+                            var condition = instruction.argument();
+                            var again = condition == null 
+                                ? iterations[level] < counts[level] 
+                                : calculate(condition) != 0;
+                            if (again) {
+                                iteration(level, iterations[level]);
+                                pc = instruction.jump() + 1;
+                            } else {
+                                frame.setInt(depthSlot, level - 1);
+                                if (level > 1) {
+                                    frame.setInt(indexSlot, iterations[level - 1]);
+                                }
+                            }
+                        }
+                    }
+                } catch (IllegalArgumentException ex) {
+                    throw parseException(ex, instruction.line());
+                }
+                if (event.shouldCommit()) {
+                    event.line = instruction.line();
+                    event.command = instruction.command().name();
+                    event.commit();
+                }
+            }
+            return null;
+        }
+        
+        /* the new turtle runs the block with copies of the variables and loop state */
+        private void spawn(Instruction instruction, int start) throws ParseException {
+            Target turtle;
+            try {
+                turtle = target.spawn(instruction.name());
+            } catch (UnsupportedOperationException ex) {
+                throw (ParseException) new ParseException(ex.getMessage(), instruction.line()).initCause(ex);
+            }
+            var copy = new Calculator(frame.copy());
+            copy.tracer(calculator.tracer());
+            turtles.spawn(new Runner(turtle, control, copy, turtles, 
+                start, instruction.jump(), counts.clone(), iterations.clone()));
+        }
+        
+        private void enter(int level) {
+            iterations[level] = 0;
+            frame.setInt(depthSlot, level);
+            iteration(level, 0);
+        }
+        
+        private void iteration(int level, int index) {
+            frame.setInt(levelSlots[level], index);
+            frame.setInt(indexSlot, index);
+        }
+        
+        private double angle(Expression degrees) {
+            return degrees == null ? 90 : calculate(degrees);
+        }
+        
+        private double calculate(Expression expression) {
+            return calculator.evalDouble(expression);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright: Carlos F. Heuberger. All rights reserved.
+ *
+ */
+package cfh.turtle.script;
+
+/**
+ * The turtle a compiled {@link Program} is run against.
+ * 
+ * @author Carlos F. Heuberger, 2026-10-18
+ *
+ */
+public interface Target {
+
+    public void delay(int time);
+    public void reset();
+    public void forward(double amount);
+    public void backward(double amount);
+    public void left(double degrees);
+    public void right(double degrees);
+    public void pen(boolean down);
+    
+    /**
+     * Creates a new turtle starting at the position, direction and pen of this one. 
+     * It is driven by another thread, concurrently with this turtle.
+     * 
+     * @throws UnsupportedOperationException if this target supports only one turtle
+     */
+    public default Target spawn(String name) {
+        throw new UnsupportedOperationException("cannot spawn turtle " + name + " on " + getClass().getName());
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright: Carlos F. Heuberger. All rights reserved.
+ *
+ */
+package cfh.turtle.script;
+
+import java.lang.reflect.Method;
+import java.text.ParseException;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The turtles spawned by one run of a program, each executing its block in its own thread.
+ * <p>
+ * Virtual threads are used if the runtime provides them (Java 21 and later), found by
+ * reflection since the code is compiled for Java 17; otherwise, or if they cannot be created
+ * (preview feature in Java 19 and 20), a cached pool of daemon platform threads is used. 
+ * The executor is only created when the first turtle is spawned.
+ *
+ * @author Carlos F. Heuberger, 2026-10-18
+ *
+ */
+final class Turtles implements AutoCloseable {
+
+    /** {@code Executors.newVirtualThreadPerTaskExecutor()} or {@code null} if not available. */
+    private static final Method VIRTUAL = virtual();
+
+    /** set after creating a virtual thread executor failed, to report it only once. */
+    private static boolean virtualFailed = false;
+
+    private static Method virtual() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException ex) {
+            return null;
+        }
+    }
+
+    private static synchronized ExecutorService newExecutor() {
+        if (VIRTUAL != null && !virtualFailed) {
+            try {
+                return (ExecutorService) VIRTUAL.invoke(null);
+            } catch (ReflectiveOperationException ex) {
+                virtualFailed = true;
+                var cause = ex.getCause() != null ? ex.getCause() : ex;
+                System.err.printf("using platform threads for turtles, no virtual threads: %s%n", cause);
+            }
+        }
+        return Executors.newCachedThreadPool(task -> {
+            var thread = new Thread(task, "turtle");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    //----------------------------------------------------------------------------------------------
+
+    private ExecutorService executor = null;
+    private final Queue<Future<Void>> running = new ConcurrentLinkedQueue<>();
+
+    /** Starts the block of a turtle, may be called by the turtles themselves. */
+    void spawn(Program.Runner runner) {
+        synchronized (this) {
+            if (executor == null) {
+                executor = newExecutor();
+            }
+        }
+        running.add(executor.submit(runner));
+    }
+
+    /**
+     * Waits for all turtles, including turtles spawned while waiting.
+     * On failure or interrupt the remaining turtles are cancelled.
+     *
+     * @throws ParseException if a turtle failed evaluating an argument
+     * @throws CancellationException if a turtle was stopped or the waiting thread interrupted
+     */
+    void join() throws ParseException {
+        try {
+            for (Future<Void> turtle; (turtle = running.poll()) != null; ) {
+                turtle.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            cancel();
+            throw new CancellationException("interrupted");
+        } catch (ExecutionException ex) {
+            cancel();
+            var cause = ex.getCause();
+            if (cause instanceof ParseException pex)
+                throw pex;
+            if (cause instanceof RuntimeException rex)
+                throw rex;
+            if (cause instanceof Error err)
+                throw err;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private void cancel() {
+        for (Future<Void> turtle; (turtle = running.poll()) != null; ) {
+            turtle.cancel(true);
+        }
+    }
+
+    /** Interrupts the turtles still running and waits for them to end. */
+    @Override
+    public synchronized void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+            try {
+                executor.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
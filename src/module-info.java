@@ -8,5 +8,7 @@
  */
 module Turtle {
     requires java.desktop;
+    requires java.management;
     requires java.prefs;
+    requires jdk.jfr;
 }
\ No newline at end of file